@@ -156,6 +156,8 @@ def list_target_data():
 "3rdparty/jvm/io/prometheus:simpleclient_hotspot": ["lang||||||java","name||||||//3rdparty/jvm/io/prometheus:simpleclient_hotspot","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/io/prometheus/simpleclient_hotspot","runtimeDeps|||L|||//3rdparty/jvm/io/prometheus:simpleclient","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/io/prometheus:simpleclient_httpserver": ["lang||||||java","name||||||//3rdparty/jvm/io/prometheus:simpleclient_httpserver","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/io/prometheus/simpleclient_httpserver","runtimeDeps|||L|||//3rdparty/jvm/io/prometheus:simpleclient|||//3rdparty/jvm/io/prometheus:simpleclient_common","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/javax/annotation:javax_annotation_api": ["lang||||||java","name||||||//3rdparty/jvm/javax/annotation:javax_annotation_api","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/javax/annotation/javax_annotation_api","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
+"3rdparty/jvm/net/sf/jopt_simple:jopt_simple": ["lang||||||java","name||||||//3rdparty/jvm/net/sf/jopt_simple:jopt_simple","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/net/sf/jopt_simple/jopt_simple","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
+"3rdparty/jvm/org/apache/commons:commons_math3": ["lang||||||java","name||||||//3rdparty/jvm/org/apache/commons:commons_math3","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/apache/commons/commons_math3","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/apache/kafka:kafka_clients": ["lang||||||java","name||||||//3rdparty/jvm/org/apache/kafka:kafka_clients","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/apache/kafka/kafka_clients","runtimeDeps|||L|||//3rdparty/jvm/org/lz4:lz4_java|||//3rdparty/jvm/com/github/luben:zstd_jni|||//3rdparty/jvm/org/slf4j:slf4j_api|||//3rdparty/jvm/org/xerial/snappy:snappy_java","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/checkerframework:checker_qual": ["lang||||||java","name||||||//3rdparty/jvm/org/checkerframework:checker_qual","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/checkerframework/checker_qual","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/codehaus/mojo:animal_sniffer_annotations": ["lang||||||java","name||||||//3rdparty/jvm/org/codehaus/mojo:animal_sniffer_annotations","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/codehaus/mojo/animal_sniffer_annotations","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
@@ -166,6 +168,8 @@ def list_target_data():
 "3rdparty/jvm/org/jetbrains/kotlin:kotlin_stdlib_jdk8": ["lang||||||java","name||||||//3rdparty/jvm/org/jetbrains/kotlin:kotlin_stdlib_jdk8","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/jetbrains/kotlin/kotlin_stdlib_jdk8","runtimeDeps|||L|||//3rdparty/jvm/org/jetbrains/kotlin:kotlin_stdlib|||//3rdparty/jvm/org/jetbrains/kotlin:kotlin_stdlib_jdk7","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/json:json": ["lang||||||java","name||||||//3rdparty/jvm/org/json:json","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/json/json","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/lz4:lz4_java": ["lang||||||java","name||||||//3rdparty/jvm/org/lz4:lz4_java","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/lz4/lz4_java","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
+"3rdparty/jvm/org/openjdk/jmh:jmh_core": ["lang||||||java","name||||||//3rdparty/jvm/org/openjdk/jmh:jmh_core","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/openjdk/jmh/jmh_core","runtimeDeps|||L|||//3rdparty/jvm/net/sf/jopt_simple:jopt_simple|||//3rdparty/jvm/org/apache/commons:commons_math3","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
+"3rdparty/jvm/org/openjdk/jmh:jmh_generator_annprocess": ["lang||||||java","name||||||//3rdparty/jvm/org/openjdk/jmh:jmh_generator_annprocess","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/openjdk/jmh/jmh_generator_annprocess","runtimeDeps|||L|||//3rdparty/jvm/org/openjdk/jmh:jmh_core","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/reactivestreams:reactive_streams": ["lang||||||java","name||||||//3rdparty/jvm/org/reactivestreams:reactive_streams","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/reactivestreams/reactive_streams","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/slf4j:slf4j_api": ["lang||||||java","name||||||//3rdparty/jvm/org/slf4j:slf4j_api","visibility||||||//visibility:public","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/slf4j/slf4j_api","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"],
 "3rdparty/jvm/org/xerial/snappy:snappy_java": ["lang||||||java","name||||||//3rdparty/jvm/org/xerial/snappy:snappy_java","visibility||||||//3rdparty/jvm:__subpackages__","kind||||||library","deps|||L|||","jars|||L|||","sources|||L|||","exports|||L|||//external:jar/org/xerial/snappy/snappy_java","runtimeDeps|||L|||","processorClasses|||L|||","generatesApi|||B|||false","licenses|||L|||","generateNeverlink|||B|||false"]
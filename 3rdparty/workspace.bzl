@@ -120,6 +120,8 @@ def list_dependencies():
     {"artifact": "io.prometheus:simpleclient_hotspot:0.8.0", "lang": "java", "sha1": "d860de9f2032f26d16a86665ddca98ce2063d304", "sha256": "619a151356ced431501fbd5c429f1bb14391bda73ec1d70b9a57417dfa6b98fc", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/io/prometheus/simpleclient_hotspot/0.8.0/simpleclient_hotspot-0.8.0.jar", "source": {"sha1": "2af3bac9679124eee0e0d02253325d92f06be18b", "sha256": "b27a9164ef141edb7f77a6950f34a95fe4eb42265ee1c67908ca1d7f51a05dc5", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/io/prometheus/simpleclient_hotspot/0.8.0/simpleclient_hotspot-0.8.0-sources.jar"} , "name": "io_prometheus_simpleclient_hotspot", "actual": "@io_prometheus_simpleclient_hotspot//jar", "bind": "jar/io/prometheus/simpleclient_hotspot"},
     {"artifact": "io.prometheus:simpleclient_httpserver:0.8.0", "lang": "java", "sha1": "92f1e16660a7112d640aaa66442d0ab97bd29b4f", "sha256": "c0354d4b7c177c0e2f4f1a3e219d078f39d36042daf5a0786e1471d405e4f026", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/io/prometheus/simpleclient_httpserver/0.8.0/simpleclient_httpserver-0.8.0.jar", "source": {"sha1": "ffe8ee7a5d1418b2611db35bd29c06ac98b45f0e", "sha256": "9c43fe5c3c92f34277ec098841d509f3325a215942ae96276ae3cefc6040ca6d", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/io/prometheus/simpleclient_httpserver/0.8.0/simpleclient_httpserver-0.8.0-sources.jar"} , "name": "io_prometheus_simpleclient_httpserver", "actual": "@io_prometheus_simpleclient_httpserver//jar", "bind": "jar/io/prometheus/simpleclient_httpserver"},
     {"artifact": "javax.annotation:javax.annotation-api:1.3.2", "lang": "java", "sha1": "934c04d3cfef185a8008e7bf34331b79730a9d43", "sha256": "e04ba5195bcd555dc95650f7cc614d151e4bcd52d29a10b8aa2197f3ab89ab9b", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/javax/annotation/javax.annotation-api/1.3.2/javax.annotation-api-1.3.2.jar", "source": {"sha1": "65dfd2c47380bf72ec62a5b8c4ceb78a4eda1a53", "sha256": "128971e52e0d84a66e3b6e049dab8ad7b2c58b7e1ad37fa2debd3d40c2947b95", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/javax/annotation/javax.annotation-api/1.3.2/javax.annotation-api-1.3.2-sources.jar"} , "name": "javax_annotation_javax_annotation_api", "actual": "@javax_annotation_javax_annotation_api//jar", "bind": "jar/javax/annotation/javax_annotation_api"},
+    {"artifact": "net.sf.jopt-simple:jopt-simple:5.0.4", "lang": "java", "sha1": "4fdac2fbe92dfad86aa6e9301736f6b4342a3f5c", "sha256": "df26cc58f235f477db07f753ba5a3ab243ebe5789d9f89ecf68dd62ea9a66c28", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4.jar", "source": {"sha1": "950831646d014c9162999019a3cb17d5fc01ac0d", "sha256": "06b283801a5a94ef697b7f2c79a048c4e2f848b3daddda61cab74d882bdd97a5", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/net/sf/jopt-simple/jopt-simple/5.0.4/jopt-simple-5.0.4-sources.jar"} , "name": "net_sf_jopt_simple_jopt_simple", "actual": "@net_sf_jopt_simple_jopt_simple//jar", "bind": "jar/net/sf/jopt_simple/jopt_simple"},
+    {"artifact": "org.apache.commons:commons-math3:3.6.1", "lang": "java", "sha1": "e4ba98f1d4b3c80ec46392f25e094a6a2e58fcbf", "sha256": "1e56d7b058d28b65abd256b8458e3885b674c1d588fa43cd7d1cbb9c7ef2b308", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1.jar", "source": {"sha1": "8fab23986ea8886af34818daf32a718e81dc98ba", "sha256": "e2ff85a3c360d56c51a7021614a194f3fbaf224054642ac535016f118322934d", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/apache/commons/commons-math3/3.6.1/commons-math3-3.6.1-sources.jar"} , "name": "org_apache_commons_commons_math3", "actual": "@org_apache_commons_commons_math3//jar", "bind": "jar/org/apache/commons/commons_math3"},
     {"artifact": "org.apache.kafka:kafka-clients:3.4.0", "lang": "java", "sha1": "69aebfca9da335f6617f9e5e7a4b45f16e8c86b5", "sha256": "48f38dede69bf2ed3709e270afb6b72fac869651fc258997727dba350333ac64", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/apache/kafka/kafka-clients/3.4.0/kafka-clients-3.4.0.jar", "source": {"sha1": "3cc7530a1de1b2eb9355067d3c62c3c9291c3631", "sha256": "6778050b189bf2eab414e4c5004d97f49f9a7635b21fe23e73d5ba131202f829", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/apache/kafka/kafka-clients/3.4.0/kafka-clients-3.4.0-sources.jar"} , "name": "org_apache_kafka_kafka_clients", "actual": "@org_apache_kafka_kafka_clients//jar", "bind": "jar/org/apache/kafka/kafka_clients"},
     {"artifact": "org.checkerframework:checker-qual:3.12.0", "lang": "java", "sha1": "d5692f0526415fcc6de94bb5bfbd3afd9dd3b3e5", "sha256": "ff10785ac2a357ec5de9c293cb982a2cbb605c0309ea4cc1cb9b9bc6dbe7f3cb", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/checkerframework/checker-qual/3.12.0/checker-qual-3.12.0.jar", "source": {"sha1": "10dacb8b36398debceca36cd0db5f3316967f80e", "sha256": "fd99a45195ed893803624d1030387056a96601013f5e61ccabd79abb4ddfa876", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/checkerframework/checker-qual/3.12.0/checker-qual-3.12.0-sources.jar"} , "name": "org_checkerframework_checker_qual", "actual": "@org_checkerframework_checker_qual//jar", "bind": "jar/org/checkerframework/checker_qual"},
     {"artifact": "org.codehaus.mojo:animal-sniffer-annotations:1.17", "lang": "java", "sha1": "f97ce6decaea32b36101e37979f8b647f00681fb", "sha256": "92654f493ecfec52082e76354f0ebf87648dc3d5cec2e3c3cdb947c016747a53", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/codehaus/mojo/animal-sniffer-annotations/1.17/animal-sniffer-annotations-1.17.jar", "source": {"sha1": "8fb5b5ad9c9723951b9fccaba5bb657fa6064868", "sha256": "2571474a676f775a8cdd15fb9b1da20c4c121ed7f42a5d93fca0e7b6e2015b40", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/codehaus/mojo/animal-sniffer-annotations/1.17/animal-sniffer-annotations-1.17-sources.jar"} , "name": "org_codehaus_mojo_animal_sniffer_annotations", "actual": "@org_codehaus_mojo_animal_sniffer_annotations//jar", "bind": "jar/org/codehaus/mojo/animal_sniffer_annotations"},
@@ -138,6 +140,8 @@ def list_dependencies():
     {"artifact": "org.jetbrains:annotations:24.0.1", "lang": "java", "sha1": "13c5c75c4206580aa4d683bffee658caae6c9f43", "sha256": "61666dbce7e42e6c85b43c04fcfb8293a21dcb55b3c80e869270ce42c01a6b35", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/jetbrains/annotations/24.0.1/annotations-24.0.1.jar", "source": {"sha1": "2f9be7fbab3157633befe74c684bd3badb28a876", "sha256": "40978d2ac2fe28e0fc2e1eddc443057572ab775986d7afc83cc0c48cc65652ab", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/jetbrains/annotations/24.0.1/annotations-24.0.1-sources.jar"} , "name": "org_jetbrains_annotations", "actual": "@org_jetbrains_annotations//jar", "bind": "jar/org/jetbrains/annotations"},
     {"artifact": "org.json:json:20180130", "lang": "java", "sha1": "26ba2ec0e791a32ea5dfbedfcebf36447ee5b12c", "sha256": "3eddf6d9d50e770650e62abe62885f4393aa911430ecde73ebafb1ffd2cfad16", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/json/json/20180130/json-20180130.jar", "source": {"sha1": "66ab57acbb9086d16201c2eafa2145d2b914bb26", "sha256": "1d43bf94c59a7b2f2be720cc269de0600e49a5d69565e1e746d8b346c150278d", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/json/json/20180130/json-20180130-sources.jar"} , "name": "org_json_json", "actual": "@org_json_json//jar", "bind": "jar/org/json/json"},
     {"artifact": "org.lz4:lz4-java:1.8.0", "lang": "java", "sha1": "4b986a99445e49ea5fbf5d149c4b63f6ed6c6780", "sha256": "d74a3334fb35195009b338a951f918203d6bbca3d1d359033dc33edd1cadc9ef", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/lz4/lz4-java/1.8.0/lz4-java-1.8.0.jar", "source": {"sha1": "7609c362f37f0c0bd3743bc1976df2daa28ad19e", "sha256": "53ac09a2d80ba5d0b7078f9cbc572dd4a5377a37d08b3333dd4b2ffe2143650f", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/lz4/lz4-java/1.8.0/lz4-java-1.8.0-sources.jar"} , "name": "org_lz4_lz4_java", "actual": "@org_lz4_lz4_java//jar", "bind": "jar/org/lz4/lz4_java"},
+    {"artifact": "org.openjdk.jmh:jmh-core:1.37", "lang": "java", "sha1": "896f27e49105b35ea1964319c83d12082e7a79ef", "sha256": "dc0eaf2bbf0036a70b60798c785d6e03a9daf06b68b8edb0f1ba9eb3421baeb3", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37.jar", "source": {"sha1": "b9d2a0ec37497caeca27a8498e8c821096b68c45", "sha256": "fd4beda07b3b94cd0e32199401bbb2d9ed3371a770c8c320761b9442ff3e8e05", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-core/1.37/jmh-core-1.37-sources.jar"} , "name": "org_openjdk_jmh_jmh_core", "actual": "@org_openjdk_jmh_jmh_core//jar", "bind": "jar/org/openjdk/jmh/jmh_core"},
+    {"artifact": "org.openjdk.jmh:jmh-generator-annprocess:1.37", "lang": "java", "sha1": "da93888682df163144edf9b13d2b78e54166063a", "sha256": "6a5604b5b804e0daca1145df1077609321687734a8b49387e49f10557c186c77", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37.jar", "source": {"sha1": "0fba3e9b555f48ad2af00812fdb83b0ffd92ea4a", "sha256": "cc1b661fb209ae1a433e331e8e78bab680674153b0a6ac69d47d11c60fb5e47e", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/openjdk/jmh/jmh-generator-annprocess/1.37/jmh-generator-annprocess-1.37-sources.jar"} , "name": "org_openjdk_jmh_jmh_generator_annprocess", "actual": "@org_openjdk_jmh_jmh_generator_annprocess//jar", "bind": "jar/org/openjdk/jmh/jmh_generator_annprocess"},
     {"artifact": "org.reactivestreams:reactive-streams:1.0.4", "lang": "java", "sha1": "3864a1320d97d7b045f729a326e1e077661f31b7", "sha256": "f75ca597789b3dac58f61857b9ac2e1034a68fa672db35055a8fb4509e325f28", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/reactivestreams/reactive-streams/1.0.4/reactive-streams-1.0.4.jar", "source": {"sha1": "d3cddd3497e618c6d3810ef439f13666f889abe4", "sha256": "5a7a36ae9536698c434ebe119feb374d721210fee68eb821a37ef3859b64b708", "repository": "https://repo.maven.apache.org/maven2/", "url": "https://repo.maven.apache.org/maven2/org/reactivestreams/reactive-streams/1.0.4/reactive-streams-1.0.4-sources.jar"} , "name": "org_reactivestreams_reactive_streams", "actual": "@org_reactivestreams_reactive_streams//jar", "bind": "jar/org/reactivestreams/reactive_streams"},
 # duplicates in org.slf4j:slf4j-api fixed to 2.0.3
 # - ch.qos.logback:logback-classic:1.3.5 wanted version 2.0.4
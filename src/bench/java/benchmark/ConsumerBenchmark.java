@@ -0,0 +1,234 @@
+package benchmark;
+
+import configuration.Config;
+import configuration.StatusClassifier;
+import configuration.TopicsRoutes;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import kafka.Consumer;
+import kafka.DeadLetterProducer;
+import kafka.OffsetCommitTracker;
+import monitoring.Monitor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import target.HttpTarget;
+import target.ITarget;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class ConsumerBenchmark {
+
+    private static final String TOPIC = "benchmark";
+    private static final int PARTITIONS = 4;
+
+    @Param({ "stream", "batch" })
+    public String processType;
+
+    @Param({ "500" })
+    public int maxPollRecords;
+
+    @Param({ "100" })
+    public int keyCardinality;
+
+    @Param({ "5" })
+    public int batchParallelismFactor;
+
+    @Param({ "0" })
+    public long batchMaxBytes;
+
+    @Param({ "0" })
+    public int windowDuration;
+
+    @Param({ "0" })
+    public int streamLanes;
+
+    @Param({ "false" })
+    public boolean virtualThreads;
+
+    // local completes target calls in process, http sends them through HttpTarget to a local HTTP server
+    @Param({ "local" })
+    public String targetType;
+
+    @Param({ "64" })
+    public int maxConcurrentCalls;
+
+    @Param({ "1000" })
+    public long targetLatencyMicros;
+
+    @Param({ "0" })
+    public long targetJitterMicros;
+
+    @Param({ "0.0" })
+    public double targetErrorRate;
+
+    @Param({ "1024" })
+    public int valueSize;
+
+    private final LatencyRecorder latencyRecorder = new LatencyRecorder();
+    private LatencyRecordingTarget target;
+    private LocalHttpServer server;
+    private Consumer consumer;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Records {
+
+        public long records;
+    }
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+
+        Config.GROUP_ID = "benchmark";
+        Config.TARGET_PROCESS_TYPE = processType;
+        Config.KAFKA_MAX_POLL_RECORDS = maxPollRecords;
+        Config.BATCH_PARALLELISM_FACTOR = batchParallelismFactor;
+        Config.BATCH_MAX_BYTES = batchMaxBytes;
+        Config.BATCH_MIN_CHUNK_SIZE = 1;
+        Config.WINDOW_DURATION = windowDuration;
+        Config.STREAM_LANES = streamLanes;
+        Config.TARGET_VIRTUAL_THREADS = virtualThreads;
+        Config.DEAD_LETTER_TOPIC = "benchmark-dead-letter";
+        Config.PROMETHEUS_BUCKETS = "0.003,0.03,0.1,0.3,1.5,10";
+        Monitor.init();
+
+        var deadLetterProducer = new DeadLetterProducer(new InMemoryKafkaSender<>());
+        ITarget localTarget;
+        if (targetType.equals("http")) {
+            server = new LocalHttpServer(targetLatencyMicros, targetJitterMicros, targetErrorRate);
+            configureHttpTarget(server.url());
+            localTarget = new HttpTarget(new TopicsRoutes(Map.of(TOPIC, "/consume")), deadLetterProducer);
+        } else {
+            localTarget = new LocalTarget(targetLatencyMicros, targetJitterMicros, targetErrorRate);
+        }
+        target = new LatencyRecordingTarget(localTarget, latencyRecorder);
+        consumer =
+            new Consumer(
+                new InMemoryKafkaReceiver<>(List.of(createPoll())),
+                deadLetterProducer,
+                target,
+                new OffsetCommitTracker(null),
+                null,
+                null
+            );
+    }
+
+    // The defaults of Config.init, but for the connection pool and the dispatcher, which would otherwise measure
+    // new connections and OkHttp's default of 5 concurrent calls per host
+    private void configureHttpTarget(String baseUrl) {
+        Config.TARGET_BASE_URL = baseUrl;
+        Config.TOPICS_ROUTES = Map.of(TOPIC, "/consume");
+        Config.TARGET_TYPE = "http";
+        Config.RECORD_PICK_FIELD = "";
+        Config.TARGET_TIMEOUT_MS = 298000;
+        Config.CONNECTION_POOL_MAX_IDLE_CONNECTIONS = maxConcurrentCalls;
+        Config.CONNECTION_POOL_KEEP_ALIVE_DURATION_MS = 60000;
+        Config.TARGET_MAX_CONCURRENT_STREAMS = maxConcurrentCalls;
+        Config.RETRY_POLICY_EXPONENTIAL_BACKOFF = List.of(50, 5000, 10);
+        Config.RETRY_POLICY_MAX_RETRIES = 10;
+        Config.RETRY_POLICY_MAX_DURATION_MS = 299000;
+        Config.CONNECTION_FAILURE_RETRY_POLICY_EXPONENTIAL_BACKOFF = List.of(5000, 300_000, 2);
+        Config.CONNECTION_FAILURE_RETRY_POLICY_MAX_RETRIES = 10;
+        Config.CONNECTION_FAILURE_RETRY_POLICY_MAX_DURATION_MS = 299000;
+        Config.STATUS_CLASSIFIER = new StatusClassifier("502|503|504", "500", "^(?!2\\d\\d$)\\d{3}$");
+    }
+
+    @TearDown(Level.Trial)
+    public void stopServer() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetLatencies() {
+        latencyRecorder.reset();
+    }
+
+    @TearDown(Level.Iteration)
+    public void reportLatencies() {
+        System.err.printf(
+            "%n[%s] record latency p50: %.2f ms, p99: %.2f ms%n",
+            processType,
+            latencyRecorder.percentileMillis(50),
+            latencyRecorder.percentileMillis(99)
+        );
+    }
+
+    @Benchmark
+    public void consumePoll(Records counters) {
+        target.pollStarted();
+        consumer.stream().blockLast();
+        counters.records += maxPollRecords;
+    }
+
+    private List<ReceiverRecord<byte[], byte[]>> createPoll() {
+        var value = ("{\"data\":\"" + "x".repeat(Math.max(valueSize - 11, 0)) + "\"}").getBytes(StandardCharsets.UTF_8);
+        var records = new ArrayList<ReceiverRecord<byte[], byte[]>>(maxPollRecords);
+        var offsets = new long[PARTITIONS];
+
+        for (int i = 0; i < maxPollRecords; i++) {
+            var key = String.valueOf(i % keyCardinality).getBytes(StandardCharsets.UTF_8);
+            var partition = (i % keyCardinality) % PARTITIONS;
+            var offset = offsets[partition]++;
+            var consumerRecord = new ConsumerRecord<>(
+                TOPIC,
+                partition,
+                offset,
+                System.currentTimeMillis(),
+                TimestampType.CREATE_TIME,
+                key.length,
+                value.length,
+                key,
+                value,
+                new RecordHeaders(),
+                Optional.empty()
+            );
+            records.add(
+                new ReceiverRecord<>(consumerRecord, new InMemoryReceiverOffset(new TopicPartition(TOPIC, partition), offset))
+            );
+        }
+        return records;
+    }
+
+    private record InMemoryReceiverOffset(TopicPartition topicPartition, long offset) implements ReceiverOffset {
+        @Override
+        public void acknowledge() {}
+
+        @Override
+        public Mono<Void> commit() {
+            return Mono.empty();
+        }
+    }
+}
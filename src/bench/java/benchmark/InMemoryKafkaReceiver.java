@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.util.List;
+import java.util.function.Function;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.sender.TransactionManager;
+
+public class InMemoryKafkaReceiver<K, V> implements KafkaReceiver<K, V> {
+
+    private final List<List<ReceiverRecord<K, V>>> polls;
+
+    public InMemoryKafkaReceiver(List<List<ReceiverRecord<K, V>>> polls) {
+        this.polls = polls;
+    }
+
+    @Override
+    public Flux<Flux<ReceiverRecord<K, V>>> receiveBatch(Integer prefetch) {
+        return Flux.fromIterable(polls).map(Flux::fromIterable);
+    }
+
+    @Override
+    public Flux<ReceiverRecord<K, V>> receive(Integer prefetch) {
+        return receiveBatch(prefetch).concatMap(Function.identity());
+    }
+
+    @Override
+    public Flux<Flux<ConsumerRecord<K, V>>> receiveAutoAck(Integer prefetch) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flux<ConsumerRecord<K, V>> receiveAtmostOnce(Integer prefetch) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Flux<Flux<ConsumerRecord<K, V>>> receiveExactlyOnce(
+        TransactionManager transactionManager,
+        Integer prefetch
+    ) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> Mono<T> doOnConsumer(Function<Consumer<K, V>, ? extends T> function) {
+        return Mono.empty();
+    }
+}
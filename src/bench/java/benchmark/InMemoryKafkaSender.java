@@ -0,0 +1,70 @@
+package benchmark;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.apache.kafka.clients.producer.Producer;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.sender.KafkaOutbound;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import reactor.kafka.sender.SenderResult;
+import reactor.kafka.sender.TransactionManager;
+
+public class InMemoryKafkaSender<K, V> implements KafkaSender<K, V> {
+
+    private final LongAdder sent = new LongAdder();
+
+    public long sent() {
+        return sent.sum();
+    }
+
+    @Override
+    public <T> Flux<SenderResult<T>> send(Publisher<? extends SenderRecord<K, V, T>> records) {
+        return Flux
+            .from(records)
+            .map(record -> {
+                sent.increment();
+                return new InMemorySenderResult<>(record.correlationMetadata());
+            });
+    }
+
+    @Override
+    public <T> Flux<Flux<SenderResult<T>>> sendTransactionally(
+        Publisher<? extends Publisher<? extends SenderRecord<K, V, T>>> records
+    ) {
+        return Flux.from(records).map(this::send);
+    }
+
+    @Override
+    public TransactionManager transactionManager() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public KafkaOutbound<K, V> createOutbound() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public <T> Mono<T> doOnProducer(Function<Producer<K, V>, ? extends T> function) {
+        return Mono.empty();
+    }
+
+    @Override
+    public void close() {}
+
+    private record InMemorySenderResult<T>(T correlationMetadata) implements SenderResult<T> {
+        @Override
+        public RecordMetadata recordMetadata() {
+            return null;
+        }
+
+        @Override
+        public Exception exception() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package benchmark;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public class LatencyRecorder {
+
+    private static final long BUCKET_NANOS = 10_000;
+    private static final int BUCKETS = 1_000_000;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    public void record(long latencyNanos) {
+        buckets.incrementAndGet((int) Math.min(Math.max(latencyNanos, 0) / BUCKET_NANOS, BUCKETS - 1));
+    }
+
+    public double percentileMillis(double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += buckets.get(i);
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        var threshold = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= threshold) {
+                return (double) ((i + 1) * BUCKET_NANOS) / 1_000_000;
+            }
+        }
+        return (double) (BUCKETS * BUCKET_NANOS) / 1_000_000;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import reactor.kafka.receiver.ReceiverRecord;
+import target.ITarget;
+
+// Records, for every record, the time from the start of its poll to the completion of its target call
+public class LatencyRecordingTarget implements ITarget {
+
+    private final ITarget target;
+    private final LatencyRecorder latencyRecorder;
+    private volatile long pollStartNanos;
+
+    public LatencyRecordingTarget(ITarget target, LatencyRecorder latencyRecorder) {
+        this.target = target;
+        this.latencyRecorder = latencyRecorder;
+    }
+
+    public void pollStarted() {
+        pollStartNanos = System.nanoTime();
+    }
+
+    @Override
+    public CompletableFuture<Object> call(
+        ReceiverRecord<byte[], byte[]> record,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return target.call(record, batchRequestId, targetRequestId).whenComplete((__, ___) -> recordLatency(1));
+    }
+
+    @Override
+    public CompletableFuture<Object> call(
+        List<ReceiverRecord<byte[], byte[]>> records,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return target
+            .call(records, batchRequestId, targetRequestId)
+            .whenComplete((__, ___) -> recordLatency(records.size()));
+    }
+
+    private void recordLatency(int count) {
+        var latency = System.nanoTime() - pollStartNanos;
+        for (int i = 0; i < count; i++) {
+            latencyRecorder.record(latency);
+        }
+    }
+}
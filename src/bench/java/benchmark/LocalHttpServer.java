@@ -0,0 +1,68 @@
+package benchmark;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// An HTTP target on the loopback interface answering every request after the configured latency, without holding
+// a thread meanwhile. Failed requests get a 400, which is dead lettered without retries
+public class LocalHttpServer implements AutoCloseable {
+
+    private final HttpServer server;
+    private final ExecutorService handlers;
+    private final ScheduledExecutorService responder;
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final double errorRate;
+
+    public LocalHttpServer(long latencyMicros, long jitterMicros, double errorRate) throws IOException {
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        this.errorRate = errorRate;
+        this.handlers = Executors.newFixedThreadPool(4);
+        this.responder = Executors.newScheduledThreadPool(4);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.createContext("/", this::handle);
+        server.setExecutor(handlers);
+        server.start();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (var body = exchange.getRequestBody()) {
+            body.transferTo(OutputStream.nullOutputStream());
+        }
+        var random = ThreadLocalRandom.current();
+        var status = random.nextDouble() < errorRate ? 400 : 200;
+        var delay = latencyMicros + (jitterMicros > 0 ? random.nextLong(-jitterMicros, jitterMicros + 1) : 0);
+        responder.schedule(() -> respond(exchange, status), Math.max(delay, 0), TimeUnit.MICROSECONDS);
+    }
+
+    private static void respond(HttpExchange exchange, int status) {
+        try {
+            exchange.sendResponseHeaders(status, -1);
+        } catch (IOException ignored) {
+            // The client gave up on the request
+        } finally {
+            exchange.close();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        responder.shutdownNow();
+        handlers.shutdownNow();
+    }
+}
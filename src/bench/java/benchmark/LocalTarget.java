@@ -0,0 +1,53 @@
+package benchmark;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import reactor.kafka.receiver.ReceiverRecord;
+import target.ITarget;
+import target.TargetException;
+
+public class LocalTarget implements ITarget {
+
+    private final long latencyMicros;
+    private final long jitterMicros;
+    private final double errorRate;
+
+    public LocalTarget(long latencyMicros, long jitterMicros, double errorRate) {
+        this.latencyMicros = latencyMicros;
+        this.jitterMicros = jitterMicros;
+        this.errorRate = errorRate;
+    }
+
+    @Override
+    public CompletableFuture<Object> call(
+        ReceiverRecord<byte[], byte[]> record,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return respond();
+    }
+
+    @Override
+    public CompletableFuture<Object> call(
+        List<ReceiverRecord<byte[], byte[]>> records,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return respond();
+    }
+
+    private CompletableFuture<Object> respond() {
+        var random = ThreadLocalRandom.current();
+        Object result = random.nextDouble() < errorRate ? new TargetException(500, "benchmark", null) : null;
+        var delay = latencyMicros + (jitterMicros > 0 ? random.nextLong(-jitterMicros, jitterMicros + 1) : 0);
+
+        return delay <= 0
+            ? CompletableFuture.completedFuture(result)
+            : CompletableFuture.supplyAsync(
+                () -> result,
+                CompletableFuture.delayedExecutor(delay, TimeUnit.MICROSECONDS)
+            );
+    }
+}
@@ -1,16 +1,24 @@
 import configuration.Config;
 import configuration.TopicsRoutes;
+import java.io.IOException;
 import java.time.Duration;
 import java.util.concurrent.CountDownLatch;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import kafka.Consumer;
+import kafka.DeadLetterProducer;
+import kafka.DedupCache;
 import kafka.KafkaClientFactory;
-import kafka.Producer;
+import kafka.OffsetCommitTracker;
+import kafka.PartitionPauseController;
+import kafka.RetryLog;
 import monitoring.Monitor;
 import monitoring.MonitoringServer;
 import reactor.core.Disposable;
 import reactor.kafka.receiver.KafkaReceiver;
+import reactor.kafka.receiver.ReceiverPartition;
 import reactor.kafka.sender.KafkaSender;
+import target.GrpcTarget;
 import target.HttpTarget;
 import target.TargetHealthcheck;
 
@@ -21,6 +29,7 @@ public class Main {
     static MonitoringServer monitoringServer;
     static CountDownLatch latch = new CountDownLatch(1);
     static TopicsRoutes topicsRoutes;
+    static PartitionPauseController pauseController;
 
     public static void main(String[] args) throws Exception {
         try {
@@ -51,7 +60,15 @@ public class Main {
         Monitor.targetHealthcheckPassedSuccessfully();
     }
 
-    private static ConsumerAndSubscription createConsumer(MonitoringServer monitoringServer) {
+    private static ConsumerAndSubscription createConsumer(MonitoringServer monitoringServer) throws IOException {
+        var commitTracker = new OffsetCommitTracker(DedupCache.create());
+        var senderOptions = KafkaClientFactory.createSenderOptions();
+        var deadLetterProducer = new DeadLetterProducer(KafkaSender.create(senderOptions));
+        var target = Config.TARGET_TYPE.equals("grpc")
+            ? new GrpcTarget(topicsRoutes, deadLetterProducer)
+            : new HttpTarget(topicsRoutes, deadLetterProducer);
+        var retryLog = RetryLog.create(target, deadLetterProducer, commitTracker);
+
         var receiverOptions = KafkaClientFactory
             .createReceiverOptions()
             .commitInterval(Duration.ofMillis(Config.COMMIT_INTERVAL_MS))
@@ -60,18 +77,60 @@ public class Main {
                 if (partitions.isEmpty()) {
                     return;
                 }
+                topicsRoutes.topicsAssigned(
+                    partitions.stream().map(p -> p.topicPartition().topic()).collect(Collectors.toSet())
+                );
+                pauseController.assigned(partitions.stream().map(ReceiverPartition::topicPartition).toList());
                 Monitor.assignedToPartition(partitions);
                 monitoringServer.consumerAssigned();
             })
-            .addRevokeListener(Monitor::revokedFromPartition);
-
-        var senderOptions = KafkaClientFactory.createSenderOptions();
+            .addRevokeListener(partitions -> {
+                var topicPartitions = partitions.stream().map(ReceiverPartition::topicPartition).toList();
+                commitTracker.revoke(topicPartitions);
+                if (retryLog != null) {
+                    retryLog.revoke(topicPartitions);
+                }
+                topicsRoutes.topicsRevoked(
+                    partitions.stream().map(p -> p.topicPartition().topic()).collect(Collectors.toSet())
+                );
+                Monitor.revokedFromPartition(partitions);
+            });
 
         var kafkaReceiver = KafkaReceiver.create(receiverOptions);
+        pauseController = new PartitionPauseController(kafkaReceiver);
+        // While a route's circuit breaker is open, the partitions of its topics are paused
+        target.onCircuitStateChange((route, open) -> {
+            if (open) {
+                pauseController.hold("circuit breaker " + route, topic -> route.equals(topicsRoutes.getUrl(topic)));
+                monitoringServer.circuitOpened(route.toString());
+            } else {
+                pauseController.release("circuit breaker " + route);
+            }
+        });
+        // Consumption resumes to probe a route, but it's only reported closed once its breaker is
+        target.onCircuitClose(route -> monitoringServer.circuitClosed(route.toString()));
+        // As well as while records of the route are waiting for the route's rate limit
+        target.onRateLimitThrottleChange((route, throttled) -> {
+            if (throttled) {
+                pauseController.hold("rate limit " + route, topic -> route.equals(topicsRoutes.getUrl(topic)));
+            } else {
+                pauseController.release("rate limit " + route);
+            }
+        });
+        // And while the retry log is full
+        if (retryLog != null) {
+            retryLog.onFullChange(
+                () -> pauseController.hold("retry log", topic -> true),
+                () -> pauseController.release("retry log")
+            );
+        }
         var consumerInstance = new Consumer(
             kafkaReceiver,
-            KafkaSender.create(senderOptions),
-            new HttpTarget(topicsRoutes, new Producer(KafkaClientFactory.createProducer()))
+            deadLetterProducer,
+            target,
+            commitTracker,
+            retryLog,
+            pauseController
         );
 
         var subscription = consumerInstance
@@ -113,5 +172,6 @@ public class Main {
         if (monitoringServer != null) {
             monitoringServer.close();
         }
+        Monitor.close();
     }
 }
@@ -4,6 +4,7 @@ import io.github.cdimascio.dotenv.Dotenv;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
@@ -29,6 +30,7 @@ public class Config {
     public static String TARGET_PROCESS_TYPE;
 
     public static Map<String, String> TOPICS_ROUTES;
+    public static Map<String, Double> TARGET_RATE_LIMITS = Map.of();
 
     //Optional
     public static int KAFKA_POLL_INTERVAL_MS;
@@ -36,11 +38,32 @@ public class Config {
     public static int KAFKA_FETCH_MAX_BYTES;
     public static int KAFKA_MAX_PARTITION_FETCH_BYTES;
     public static int BATCH_PARALLELISM_FACTOR;
+    public static int BATCH_MAX_RECORDS;
+    public static long BATCH_MAX_BYTES;
+    public static int BATCH_MIN_CHUNK_SIZE;
+    public static int STREAM_LANES;
+    public static int PARTITION_MAX_IN_FLIGHT;
+    public static boolean COALESCE_BY_KEY;
+    public static int PIPELINE_MAX_IN_FLIGHT;
+    public static int TARGET_CIRCUIT_BREAKER_FAILURES;
+    public static long TARGET_CIRCUIT_BREAKER_DELAY_MS;
+    public static double TARGET_RETRY_BUDGET_RATIO;
+    public static double TARGET_RETRY_BUDGET_MIN_PER_SECOND;
     public static int COMMIT_INTERVAL_MS;
     public static String DEAD_LETTER_TOPIC;
+    public static String RETRY_LOG_PATH;
+    public static int RETRY_LOG_SIZE_MB;
+    public static int RETRY_LOG_MAX_PARKED;
+    public static long RETRY_LOG_MAX_DURATION_MS;
+    public static int DEDUP_CACHE_SIZE;
+    public static long DEDUP_CACHE_TTL_MS;
+    public static int DEAD_LETTER_LINGER_MS;
+    public static int DEAD_LETTER_BATCH_SIZE;
+    public static String DEAD_LETTER_COMPRESSION_TYPE;
     public static String CONNECTION_RETRY_PROCESS_WHEN_STATUS_CODE_MATCH;
     public static String RETRY_PROCESS_WHEN_STATUS_CODE_MATCH;
     public static String PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH;
+    public static StatusClassifier STATUS_CLASSIFIER;
     public static List<Integer> RETRY_POLICY_EXPONENTIAL_BACKOFF;
     public static List<Integer> CONNECTION_FAILURE_RETRY_POLICY_EXPONENTIAL_BACKOFF;
     public static int RETRY_POLICY_MAX_RETRIES;
@@ -64,11 +87,23 @@ public class Config {
 
     public static boolean EXPOSE_JAVA_METRICS;
     public static String PROMETHEUS_BUCKETS;
+    public static String LOG_LEVEL;
+    public static int LOG_QUEUE_SIZE;
+    public static double LOG_RECORD_SAMPLE_RATE = 1;
+    public static int LOG_MAX_PAYLOAD_LENGTH;
     public static String TARGET_HEALTHCHECK;
     public static List<String> ASSIGNMENT_STRATEGY;
 
     public static int CONNECTION_POOL_MAX_IDLE_CONNECTIONS;
     public static int CONNECTION_POOL_KEEP_ALIVE_DURATION_MS;
+    public static String TARGET_TYPE = "http";
+    public static int TARGET_STREAMS;
+    public static String TARGET_HTTP_PROTOCOL = "http1";
+    public static int TARGET_MAX_CONCURRENT_STREAMS;
+    public static boolean TARGET_ADAPTIVE_CONCURRENCY;
+    public static List<Integer> TARGET_CONCURRENCY_LIMITS;
+    public static long TARGET_CONCURRENCY_LATENCY_THRESHOLD_MS;
+    public static boolean TARGET_VIRTUAL_THREADS;
 
     public static String RECORD_PICK_FIELD;
 
@@ -94,13 +129,74 @@ public class Config {
 
         TOPICS_ROUTES = getStringMap(dotenv, "TOPICS_ROUTES");
 
+        TARGET_RATE_LIMITS = new LinkedHashMap<>();
+        var rateLimits = getOptionalStringList(dotenv, "TARGET_RATE_LIMITS");
+        if (rateLimits != null) {
+            for (var rateLimit : rateLimits) {
+                var route = rateLimit.split(":");
+                if (
+                    route.length != 2 ||
+                    !TOPICS_ROUTES.containsValue(route[0]) ||
+                    !route[1].matches("\\d+(\\.\\d+)?") ||
+                    Double.parseDouble(route[1]) <= 0
+                ) {
+                    throw new IllegalArgumentException(
+                        String.format(
+                            "TARGET_RATE_LIMITS value not supported {%s}, expected route:requestsPerSecond",
+                            rateLimit
+                        )
+                    );
+                }
+                TARGET_RATE_LIMITS.put(route[0], Double.parseDouble(route[1]));
+            }
+        }
+
         TARGET_PROCESS_TYPE = getOptionalString(dotenv, "TARGET_PROCESS_TYPE", "stream");
 
         CONNECTION_POOL_MAX_IDLE_CONNECTIONS = getOptionalInt(dotenv, "CONNECTION_POOL_MAX_IDLE_CONNECTIONS", 0);
         CONNECTION_POOL_KEEP_ALIVE_DURATION_MS = getOptionalInt(dotenv, "CONNECTION_POOL_KEEP_ALIVE_DURATION_MS", 1000);
 
+        TARGET_TYPE = getOptionalString(dotenv, "TARGET_TYPE", "http");
+        if (!List.of("http", "grpc").contains(TARGET_TYPE)) {
+            throw new IllegalArgumentException(String.format("TARGET_TYPE value not supported {%s}", TARGET_TYPE));
+        }
+        TARGET_HTTP_PROTOCOL = getOptionalString(dotenv, "TARGET_HTTP_PROTOCOL", "http1");
+        if (!List.of("http1", "h2", "h2c").contains(TARGET_HTTP_PROTOCOL)) {
+            throw new IllegalArgumentException(
+                String.format("TARGET_HTTP_PROTOCOL value not supported {%s}", TARGET_HTTP_PROTOCOL)
+            );
+        }
+        TARGET_MAX_CONCURRENT_STREAMS = getOptionalInt(dotenv, "TARGET_MAX_CONCURRENT_STREAMS", 0);
+
+        // Streams write the request body while reading acks from the response, which OkHttp only does over HTTP/2
+        TARGET_STREAMS = getOptionalInt(dotenv, "TARGET_STREAMS", 0);
+        if (TARGET_STREAMS > 0 && TARGET_TYPE.equals("http") && TARGET_HTTP_PROTOCOL.equals("http1")) {
+            throw new IllegalArgumentException("TARGET_STREAMS requires TARGET_HTTP_PROTOCOL h2 or h2c");
+        }
+
+        TARGET_ADAPTIVE_CONCURRENCY = getOptionalBool(dotenv, "TARGET_ADAPTIVE_CONCURRENCY", false);
+        TARGET_CONCURRENCY_LIMITS = getOptionalIntList(dotenv, "TARGET_CONCURRENCY_LIMITS", 3, List.of(10, 1, 200));
+        TARGET_CONCURRENCY_LATENCY_THRESHOLD_MS = getOptionalLong(dotenv, "TARGET_CONCURRENCY_LATENCY_THRESHOLD_MS", 0);
+
+        TARGET_VIRTUAL_THREADS = getOptionalBool(dotenv, "TARGET_VIRTUAL_THREADS", false);
+        if (TARGET_VIRTUAL_THREADS && Runtime.version().feature() < 21) {
+            throw new IllegalArgumentException(
+                String.format("TARGET_VIRTUAL_THREADS requires Java 21, running on %s", Runtime.version())
+            );
+        }
+
         BODY_HEADERS_PATHS = getOptionalStringList(dotenv, "BODY_HEADERS_PATHS");
         RECORD_PICK_FIELD = getOptionalString(dotenv, "RECORD_PICK_FIELD", "");
+        // gRPC targets get the whole record in its Record message
+        if (TARGET_TYPE.equals("grpc") && (!RECORD_PICK_FIELD.isEmpty() || BODY_HEADERS_PATHS != null)) {
+            throw new IllegalArgumentException(
+                "RECORD_PICK_FIELD and BODY_HEADERS_PATHS are not supported by TARGET_TYPE grpc"
+            );
+        }
+        // A stream is a single request for many records, there are no per record request headers to copy body paths to
+        if (TARGET_STREAMS > 0 && BODY_HEADERS_PATHS != null) {
+            throw new IllegalArgumentException("BODY_HEADERS_PATHS is not supported with TARGET_STREAMS");
+        }
 
         KAFKA_POLL_INTERVAL_MS = getOptionalInt(dotenv, "KAFKA_POLL_INTERVAL_MS", 5 * 60 * 1000);
         KAFKA_MAX_POLL_RECORDS = getOptionalInt(dotenv, "KAFKA_MAX_POLL_RECORDS", 500);
@@ -109,6 +205,28 @@ public class Config {
             getOptionalInt(dotenv, "KAFKA_MAX_PARTITION_FETCH_BYTES", ConsumerConfig.DEFAULT_MAX_PARTITION_FETCH_BYTES);
 
         BATCH_PARALLELISM_FACTOR = getOptionalInt(dotenv, "BATCH_PARALLELISM_FACTOR", 5);
+        BATCH_MAX_RECORDS = getOptionalInt(dotenv, "BATCH_MAX_RECORDS", 0);
+        BATCH_MAX_BYTES = getOptionalLong(dotenv, "BATCH_MAX_BYTES", 0);
+        BATCH_MIN_CHUNK_SIZE = getOptionalInt(dotenv, "BATCH_MIN_CHUNK_SIZE", 1);
+        STREAM_LANES = getOptionalInt(dotenv, "STREAM_LANES", 0);
+        PARTITION_MAX_IN_FLIGHT = getOptionalInt(dotenv, "PARTITION_MAX_IN_FLIGHT", 0);
+        COALESCE_BY_KEY = getOptionalBool(dotenv, "COALESCE_BY_KEY", false);
+        PIPELINE_MAX_IN_FLIGHT = getOptionalInt(dotenv, "PIPELINE_MAX_IN_FLIGHT", 0);
+        if (PIPELINE_MAX_IN_FLIGHT > 0 && !TARGET_PROCESS_TYPE.equals("stream")) {
+            throw new IllegalArgumentException(
+                String.format("PIPELINE_MAX_IN_FLIGHT requires TARGET_PROCESS_TYPE=stream, got %s", TARGET_PROCESS_TYPE)
+            );
+        }
+        // Lanes live as long as the consumer, so their number has to be bounded
+        if (PIPELINE_MAX_IN_FLIGHT > 0 && (STREAM_LANES <= 0 || PIPELINE_MAX_IN_FLIGHT <= STREAM_LANES)) {
+            throw new IllegalArgumentException(
+                String.format(
+                    "PIPELINE_MAX_IN_FLIGHT (%s) must be greater than STREAM_LANES (%s), which must be set",
+                    PIPELINE_MAX_IN_FLIGHT,
+                    STREAM_LANES
+                )
+            );
+        }
 
         RETRY_POLICY_MAX_DURATION_MS =
             getOptionalInt(dotenv, "RETRY_POLICY_MAX_DURATION_MS", KAFKA_POLL_INTERVAL_MS - 1000);
@@ -144,6 +262,13 @@ public class Config {
         PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH =
             getOptionalString(dotenv, "PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH", "^(?!2\\d\\d$)\\d{3}$");
 
+        STATUS_CLASSIFIER =
+            new StatusClassifier(
+                CONNECTION_RETRY_PROCESS_WHEN_STATUS_CODE_MATCH,
+                RETRY_PROCESS_WHEN_STATUS_CODE_MATCH,
+                PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH
+            );
+
         RETRY_POLICY_EXPONENTIAL_BACKOFF =
             getOptionalIntList(dotenv, "RETRY_POLICY_EXPONENTIAL_BACKOFF", 3, List.of(50, 5000, 10));
 
@@ -159,7 +284,31 @@ public class Config {
         CONNECTION_FAILURE_RETRY_POLICY_MAX_RETRIES =
             getOptionalInt(dotenv, "CONNECTION_FAILURE_RETRY_POLICY_MAX_RETRIES", 10);
 
+        TARGET_CIRCUIT_BREAKER_FAILURES = getOptionalInt(dotenv, "TARGET_CIRCUIT_BREAKER_FAILURES", 0);
+        TARGET_CIRCUIT_BREAKER_DELAY_MS = getOptionalLong(dotenv, "TARGET_CIRCUIT_BREAKER_DELAY_MS", 30000);
+        TARGET_RETRY_BUDGET_RATIO = getOptionalDouble(dotenv, "TARGET_RETRY_BUDGET_RATIO", 0);
+        TARGET_RETRY_BUDGET_MIN_PER_SECOND = getOptionalDouble(dotenv, "TARGET_RETRY_BUDGET_MIN_PER_SECOND", 10);
+
         DEAD_LETTER_TOPIC = getOptionalString(dotenv, "DEAD_LETTER_TOPIC", null);
+        RETRY_LOG_PATH = getOptionalString(dotenv, "RETRY_LOG_PATH", null);
+        if (RETRY_LOG_PATH != null && !TARGET_PROCESS_TYPE.equals("stream")) {
+            throw new IllegalArgumentException(
+                String.format("RETRY_LOG_PATH requires TARGET_PROCESS_TYPE=stream, got %s", TARGET_PROCESS_TYPE)
+            );
+        }
+        RETRY_LOG_SIZE_MB = getOptionalInt(dotenv, "RETRY_LOG_SIZE_MB", 64);
+        RETRY_LOG_MAX_PARKED = getOptionalInt(dotenv, "RETRY_LOG_MAX_PARKED", 10000);
+        if (RETRY_LOG_PATH != null && RETRY_LOG_MAX_PARKED <= 0) {
+            throw new IllegalArgumentException(
+                String.format("RETRY_LOG_MAX_PARKED (%s) must be greater than 0", RETRY_LOG_MAX_PARKED)
+            );
+        }
+        RETRY_LOG_MAX_DURATION_MS = getOptionalLong(dotenv, "RETRY_LOG_MAX_DURATION_MS", 600000);
+        DEDUP_CACHE_SIZE = getOptionalInt(dotenv, "DEDUP_CACHE_SIZE", 0);
+        DEDUP_CACHE_TTL_MS = getOptionalLong(dotenv, "DEDUP_CACHE_TTL_MS", 600000);
+        DEAD_LETTER_LINGER_MS = getOptionalInt(dotenv, "DEAD_LETTER_LINGER_MS", 5);
+        DEAD_LETTER_BATCH_SIZE = getOptionalInt(dotenv, "DEAD_LETTER_BATCH_SIZE", 64 * 1024);
+        DEAD_LETTER_COMPRESSION_TYPE = getOptionalString(dotenv, "DEAD_LETTER_COMPRESSION_TYPE", "none");
 
         MONITORING_SERVER_PORT = getOptionalInt(dotenv, "MONITORING_SERVER_PORT", 0);
 
@@ -209,6 +358,11 @@ public class Config {
 
         PROMETHEUS_BUCKETS = getOptionalString(dotenv, "PROMETHEUS_BUCKETS", "0.003,0.03,0.1,0.3,1.5,10");
 
+        LOG_LEVEL = getOptionalString(dotenv, "LOG_LEVEL", "info");
+        LOG_QUEUE_SIZE = getOptionalInt(dotenv, "LOG_QUEUE_SIZE", 8192);
+        LOG_RECORD_SAMPLE_RATE = getOptionalDouble(dotenv, "LOG_RECORD_SAMPLE_RATE", 1);
+        LOG_MAX_PAYLOAD_LENGTH = getOptionalInt(dotenv, "LOG_MAX_PAYLOAD_LENGTH", 0);
+
         WINDOW_DURATION = getOptionalInt(dotenv, "WINDOW_DURATION", 0);
     }
 
@@ -300,6 +454,14 @@ public class Config {
         }
     }
 
+    private static double getOptionalDouble(Dotenv dotenv, String name, double fallback) {
+        try {
+            return Double.parseDouble(getString(dotenv, name));
+        } catch (Exception e) {
+            return fallback;
+        }
+    }
+
     private static String getStringValueOrFromFile(Dotenv dotenv, String name) throws Exception {
         String value = dotenv.get(name);
 
@@ -320,6 +482,6 @@ public class Config {
         return getStringList(dotenv, name)
             .stream()
             .map(x -> x.split(":"))
-            .collect(Collectors.toMap(x -> x[0], x -> x[1]));
+            .collect(Collectors.toMap(x -> x[0], x -> x[1], (first, second) -> second, LinkedHashMap::new));
     }
 }
@@ -0,0 +1,62 @@
+package configuration;
+
+import java.util.regex.Pattern;
+
+public class StatusClassifier {
+
+    private static final int MIN_CODE = 100;
+    private static final int MAX_CODE = 599;
+
+    private static final int CONNECTION_RETRY = 1;
+    private static final int RETRY = 1 << 1;
+    private static final int DEAD_LETTER = 1 << 2;
+
+    private final Pattern connectionRetryPattern;
+    private final Pattern retryPattern;
+    private final Pattern deadLetterPattern;
+    private final byte[] flags = new byte[MAX_CODE - MIN_CODE + 1];
+
+    public StatusClassifier(String connectionRetryMatch, String retryMatch, String deadLetterMatch) {
+        this.connectionRetryPattern = Pattern.compile(connectionRetryMatch);
+        this.retryPattern = Pattern.compile(retryMatch);
+        this.deadLetterPattern = Pattern.compile(deadLetterMatch);
+
+        for (var code = MIN_CODE; code <= MAX_CODE; code++) {
+            flags[code - MIN_CODE] = (byte) match(code);
+        }
+    }
+
+    public boolean isConnectionRetry(int code) {
+        return (flags(code) & CONNECTION_RETRY) != 0;
+    }
+
+    public boolean isRetry(int code) {
+        return (flags(code) & RETRY) != 0;
+    }
+
+    public boolean isDeadLetter(int code) {
+        return (flags(code) & DEAD_LETTER) != 0;
+    }
+
+    private int flags(int code) {
+        if (code < MIN_CODE || code > MAX_CODE) {
+            return match(code);
+        }
+        return flags[code - MIN_CODE];
+    }
+
+    private int match(int code) {
+        var status = Integer.toString(code);
+        var flags = 0;
+        if (connectionRetryPattern.matcher(status).matches()) {
+            flags |= CONNECTION_RETRY;
+        }
+        if (retryPattern.matcher(status).matches()) {
+            flags |= RETRY;
+        }
+        if (deadLetterPattern.matcher(status).matches()) {
+            flags |= DEAD_LETTER;
+        }
+        return flags;
+    }
+}
@@ -1,31 +1,57 @@
 package configuration;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
+import okhttp3.HttpUrl;
 
 public class TopicsRoutes {
 
+    private record Route(Pattern pattern, String path) {}
+
     private final Map<String, String> topicsRoutes;
+    private final List<Route> routes;
+    private final Map<String, HttpUrl> urls = new ConcurrentHashMap<>();
 
     public TopicsRoutes(Map<String, String> topicsRoutes) {
         this.topicsRoutes = topicsRoutes;
+        this.routes =
+            topicsRoutes
+                .entrySet()
+                .stream()
+                .map(route -> new Route(Pattern.compile(route.getKey()), route.getValue()))
+                .toList();
     }
 
+    // An exact topic name wins over patterns, otherwise patterns are matched in TOPICS_ROUTES order
     public String getRoute(String topic) {
-        var route = topicsRoutes
-            .keySet()
-            .stream()
-            .filter(pattern -> Pattern.matches(pattern, topic))
-            .findAny()
-            .orElse(null);
+        var exact = topicsRoutes.get(topic);
+        if (exact != null) {
+            return exact;
+        }
 
-        if (route == null) {
-            return null;
+        for (var route : routes) {
+            if (route.pattern().matcher(topic).matches()) {
+                return route.path();
+            }
         }
+        return null;
+    }
+
+    public HttpUrl getUrl(String topic) {
+        return urls.computeIfAbsent(topic, this::resolveUrl);
+    }
 
-        return topicsRoutes.get(route);
+    public void topicsAssigned(Collection<String> topics) {
+        topics.forEach(topic -> urls.put(topic, resolveUrl(topic)));
+    }
+
+    public void topicsRevoked(Collection<String> topics) {
+        topics.forEach(urls::remove);
     }
 
     public Set<String> getTopics() {
@@ -38,4 +64,12 @@ public class TopicsRoutes {
             .map(topic -> String.format("^%s$", topic))
             .collect(Collectors.joining("|"));
     }
+
+    private HttpUrl resolveUrl(String topic) {
+        var route = getRoute(topic);
+        if (route == null) {
+            throw new IllegalArgumentException("no route matches topic " + topic);
+        }
+        return HttpUrl.get(Config.TARGET_BASE_URL + route);
+    }
 }
@@ -1,41 +1,58 @@
 package kafka;
 
 import configuration.Config;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.UUID;
 import monitoring.Monitor;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.scheduler.Schedulers;
 import reactor.kafka.receiver.KafkaReceiver;
 import reactor.kafka.receiver.ReceiverRecord;
-import reactor.kafka.sender.KafkaSender;
-import reactor.kafka.sender.SenderRecord;
+import reactor.util.concurrent.Queues;
+import reactor.util.function.Tuples;
 import target.ITarget;
 import target.TargetException;
+import target.TargetExecutors;
 
 public class Consumer {
 
-    private final KafkaReceiver<String, String> kafkaReceiver;
-    private final KafkaSender<String, String> kafkaSender;
+    private final KafkaReceiver<byte[], byte[]> kafkaReceiver;
+    private final DeadLetterProducer deadLetterProducer;
     private final ITarget target;
+    private final OffsetCommitTracker commitTracker;
+    private final RetryLog retryLog;
+    private final PartitionPauseController pauseController;
 
     public Consumer(
-        KafkaReceiver<String, String> kafkaReceiver,
-        KafkaSender<String, String> kafkaSender,
-        ITarget target
+        KafkaReceiver<byte[], byte[]> kafkaReceiver,
+        DeadLetterProducer deadLetterProducer,
+        ITarget target,
+        OffsetCommitTracker commitTracker,
+        RetryLog retryLog,
+        PartitionPauseController pauseController
     ) {
         this.kafkaReceiver = kafkaReceiver;
-        this.kafkaSender = kafkaSender;
+        this.deadLetterProducer = deadLetterProducer;
         this.target = target;
+        this.commitTracker = commitTracker;
+        this.retryLog = retryLog;
+        this.pauseController = pauseController;
     }
 
-    private Flux<List<ReceiverRecord<String, String>>> processAsBatch(Flux<ReceiverRecord<String, String>> records) {
+    private Flux<List<ReceiverRecord<byte[], byte[]>>> processAsBatch(Flux<ReceiverRecord<byte[], byte[]>> records) {
         return records
+            .filter(record -> !skipRedelivered(record, null))
             .groupBy(ConsumerRecord::topic)
             .flatMap(Flux::collectList)
             .flatMap(batch -> {
@@ -43,49 +60,27 @@ public class Consumer {
                 var batchStartTimestamp = new Date().getTime();
                 Monitor.batchProcessStarted(batchRequestId);
                 return Flux
-                    .fromIterable(batch)
-                    .buffer(batch.size() / Config.BATCH_PARALLELISM_FACTOR + 1)
-                    .publishOn(Schedulers.boundedElastic())
+                    .fromIterable(chunk(batch))
+                    .publishOn(TargetExecutors.scheduler(Schedulers.boundedElastic()))
                     .flatMap(
                         receiverRecords -> {
                             var targetRequestId = UUID.randomUUID().toString();
                             return Mono
                                 .fromFuture(target.call(receiverRecords, batchRequestId, targetRequestId))
                                 .flatMap(targetResult -> {
-                                    if (targetResult instanceof TargetException && Config.DEAD_LETTER_TOPIC != null) {
-                                        return Flux
-                                            .fromIterable(receiverRecords)
-                                            .flatMap(record ->
-                                                kafkaSender
-                                                    .send(
-                                                        Mono.just(
-                                                            SenderRecord.create(
-                                                                new ProducerRecord<>(
-                                                                    Config.DEAD_LETTER_TOPIC,
-                                                                    null,
-                                                                    record.key(),
-                                                                    record.value(),
-                                                                    ((TargetException) targetResult).getHeaders(record)
-                                                                ),
-                                                                null
-                                                            )
-                                                        )
-                                                    )
-                                                    .doOnComplete(() ->
-                                                        Monitor.deadLetterProduced(
-                                                            record,
-                                                            batchRequestId,
-                                                            targetRequestId
-                                                        )
-                                                    )
-                                            )
+                                    if (
+                                        targetResult instanceof TargetException targetException &&
+                                        Config.DEAD_LETTER_TOPIC != null
+                                    ) {
+                                        return deadLetterProducer
+                                            .produce(receiverRecords, targetException, batchRequestId, targetRequestId)
                                             .then(Mono.just(receiverRecords));
                                     }
                                     return Mono.just(receiverRecords);
                                 })
                                 .doOnSuccess(__ -> {
+                                    receiverRecords.forEach(record -> commitTracker.complete(record.receiverOffset()));
                                     var lastRecord = receiverRecords.get(receiverRecords.size() - 1);
-                                    lastRecord.receiverOffset().acknowledge();
                                     Monitor.messageAcknowledge(lastRecord, batchRequestId, targetRequestId);
                                 });
                         },
@@ -95,44 +90,237 @@ public class Consumer {
             });
     }
 
-    private Mono<List<ReceiverRecord<String, String>>> processAsStream(Flux<ReceiverRecord<String, String>> records) {
+    // Splits a topic batch into about BATCH_PARALLELISM_FACTOR target requests. A chunk is closed early when it
+    // reaches BATCH_MAX_RECORDS or the next record would take it over BATCH_MAX_BYTES, and isn't closed before
+    // BATCH_MIN_CHUNK_SIZE records unless the byte limit requires it
+    private static List<List<ReceiverRecord<byte[], byte[]>>> chunk(List<ReceiverRecord<byte[], byte[]>> batch) {
+        var chunkSize = Math.max(batch.size() / Config.BATCH_PARALLELISM_FACTOR + 1, Config.BATCH_MIN_CHUNK_SIZE);
+        if (Config.BATCH_MAX_RECORDS > 0) {
+            chunkSize = Math.min(chunkSize, Config.BATCH_MAX_RECORDS);
+        }
+
+        var chunks = new ArrayList<List<ReceiverRecord<byte[], byte[]>>>();
+        var chunk = new ArrayList<ReceiverRecord<byte[], byte[]>>(chunkSize);
+        var chunkBytes = 0L;
+        for (var record : batch) {
+            // Record values joined by ", " inside a JSON array
+            var recordBytes = Math.max(record.serializedValueSize(), 0) + 2;
+            if (
+                !chunk.isEmpty() &&
+                (
+                    chunk.size() >= chunkSize ||
+                    (Config.BATCH_MAX_BYTES > 0 && chunkBytes + recordBytes > Config.BATCH_MAX_BYTES)
+                )
+            ) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(chunkSize);
+                chunkBytes = 0;
+            }
+            chunk.add(record);
+            chunkBytes += recordBytes;
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+        return chunks;
+    }
+
+    private Mono<List<ReceiverRecord<byte[], byte[]>>> processAsStream(Flux<ReceiverRecord<byte[], byte[]>> records) {
         var batchRequestId = UUID.randomUUID().toString();
         var batchStartTimestamp = new Date().getTime();
         Monitor.batchProcessStarted(batchRequestId);
         return records
-            .groupBy(record -> record.key() == null ? record.partition() : record.key())
+            .groupBy(this::streamGroup)
             .delayElements(Duration.ofMillis(0))
-            .publishOn(Schedulers.parallel())
-            .flatMap(partition ->
-                partition.concatMap(record -> {
-                    var targetRequestId = UUID.randomUUID().toString();
-                    return Mono
-                        .fromFuture(target.call(record, batchRequestId, targetRequestId))
-                        .then(Mono.just(record))
-                        .doOnSuccess(r -> {
-                            r.receiverOffset().acknowledge();
-                            Monitor.messageAcknowledge(r, batchRequestId, targetRequestId);
-                        });
-                })
+            .publishOn(TargetExecutors.scheduler(Schedulers.parallel()))
+            .flatMap(
+                group -> group.concatMap(record -> processRecord(record, batchRequestId)),
+                Config.STREAM_LANES > 0 ? Config.STREAM_LANES : Queues.SMALL_BUFFER_SIZE
             )
             .collectList()
             .doOnNext(batch -> Monitor.batchProcessCompleted(batch.size(), batchStartTimestamp, batchRequestId));
     }
 
+    private Mono<ReceiverRecord<byte[], byte[]>> processRecord(
+        ReceiverRecord<byte[], byte[]> record,
+        String batchRequestId
+    ) {
+        if (skipRedelivered(record, batchRequestId)) {
+            return Mono.just(record);
+        }
+
+        // Behind a parked record of the same key, so it's parked too to keep the key's order
+        if (retryLog != null && retryLog.isParked(record)) {
+            return Mono.fromFuture(retryLog.park(record, null)).thenReturn(record);
+        }
+
+        var targetRequestId = UUID.randomUUID().toString();
+        return Mono
+            .fromFuture(target.call(record, batchRequestId, targetRequestId))
+            .defaultIfEmpty(record)
+            .flatMap(result -> {
+                // Completed in the commit tracker by the retry log once resolved
+                if (retryLog != null && result instanceof TargetException targetException) {
+                    return Mono.fromFuture(retryLog.park(record, targetException)).thenReturn(record);
+                }
+                commitTracker.complete(record.receiverOffset());
+                Monitor.messageAcknowledge(record, batchRequestId, targetRequestId);
+                return Mono.just(record);
+            });
+    }
+
+    // A record completed before a rebalance redelivered it is acknowledged without calling the target again
+    private boolean skipRedelivered(ReceiverRecord<byte[], byte[]> record, String batchRequestId) {
+        if (!commitTracker.isRedelivered(record.receiverOffset())) {
+            return false;
+        }
+        commitTracker.complete(record.receiverOffset());
+        Monitor.redeliveredRecordSkipped(record, batchRequestId);
+        return true;
+    }
+
+    // With STREAM_LANES set, records are hashed into a fixed number of lanes, each processed in order,
+    // which bounds the in-flight target calls regardless of key cardinality
+    private Object streamGroup(ReceiverRecord<byte[], byte[]> record) {
+        if (Config.STREAM_LANES > 0) {
+            var hash = record.key() == null ? record.partition() : Arrays.hashCode(record.key());
+            return Math.floorMod(hash, Config.STREAM_LANES);
+        }
+        return record.key() == null ? record.partition() : ByteBuffer.wrap(record.key());
+    }
+
+    private Flux<List<ReceiverRecord<byte[], byte[]>>> process(Flux<ReceiverRecord<byte[], byte[]>> records) {
+        var registered = records.doOnNext(record -> commitTracker.register(record.receiverOffset()));
+        if (Config.COALESCE_BY_KEY) {
+            registered = coalesce(registered);
+        }
+        return Config.TARGET_PROCESS_TYPE.equals("batch") ? processAsBatch(registered) : processAsStream(registered).flux();
+    }
+
+    // With COALESCE_BY_KEY, only the last record of every key of a poll (or window) goes to the target, the records
+    // it supersedes are acknowledged as they are. Records are registered before, so none is committed early, and
+    // records without a key are all kept
+    private Flux<ReceiverRecord<byte[], byte[]>> coalesce(Flux<ReceiverRecord<byte[], byte[]>> records) {
+        return records
+            .collectList()
+            .flatMapIterable(poll -> {
+                var latest = new HashMap<Object, ReceiverRecord<byte[], byte[]>>();
+                for (var record : poll) {
+                    if (record.key() != null) {
+                        latest.put(coalesceKey(record), record);
+                    }
+                }
+
+                var kept = new ArrayList<ReceiverRecord<byte[], byte[]>>(latest.size());
+                for (var record : poll) {
+                    if (record.key() == null || latest.get(coalesceKey(record)) == record) {
+                        kept.add(record);
+                    } else {
+                        commitTracker.complete(record.receiverOffset());
+                        Monitor.recordCoalesced(record);
+                    }
+                }
+                return kept;
+            });
+    }
+
+    private static Object coalesceKey(ReceiverRecord<byte[], byte[]> record) {
+        return Tuples.of(record.receiverOffset().topicPartition(), ByteBuffer.wrap(record.key()));
+    }
+
+    // With PARTITION_MAX_IN_FLIGHT set, every poll is split by partition and each partition processes its slices
+    // in order on its own, so the next poll doesn't wait for the slowest partition of the previous one. The pause
+    // controller stops fetching a partition that falls behind instead
+    private Flux<?> streamByPartition() {
+        return kafkaReceiver
+            .receiveBatch()
+            .concatMap(Flux::collectList)
+            .flatMapIterable(Consumer::slicePartitions)
+            .doOnNext(slice -> pauseController.received(slice.get(0).receiverOffset().topicPartition(), slice.size()))
+            // Slices queued for a blocked partition would use up a bounded prefetch, which all partitions share, and
+            // stall the others. The pause controller bounds them instead: every slice holds at least one record
+            .groupBy(slice -> slice.get(0).receiverOffset().topicPartition(), Integer.MAX_VALUE)
+            // Partition groups never complete, so they must all be subscribed at once
+            .flatMap(
+                partition -> {
+                    var topicPartition = partition.key();
+                    return partition.concatMap(slice ->
+                        process(Flux.fromIterable(slice))
+                            .doFinally(__ -> pauseController.completed(topicPartition, slice.size()))
+                    );
+                },
+                Integer.MAX_VALUE
+            );
+    }
+
+    private static Collection<List<ReceiverRecord<byte[], byte[]>>> slicePartitions(
+        List<ReceiverRecord<byte[], byte[]>> poll
+    ) {
+        var slices = new LinkedHashMap<TopicPartition, List<ReceiverRecord<byte[], byte[]>>>();
+        for (var record : poll) {
+            slices.computeIfAbsent(record.receiverOffset().topicPartition(), __ -> new ArrayList<>()).add(record);
+        }
+        return slices.values();
+    }
+
+    // With PIPELINE_MAX_IN_FLIGHT set, the lanes outlive polls: records of the next polls join them while the
+    // previous ones are still in flight, so a poll no longer waits for its slowest key. Lanes keep every key (and
+    // partition) in order, and the lanes only take more records from the receiver as records are done, at most
+    // PIPELINE_MAX_IN_FLIGHT queued or being called across all lanes
+    private Flux<?> streamPipelined() {
+        return kafkaReceiver
+            .receiveBatch()
+            .concatMap(poll -> {
+                var batchRequestId = UUID.randomUUID().toString();
+                var registered = poll.doOnNext(record -> commitTracker.register(record.receiverOffset()));
+                if (Config.COALESCE_BY_KEY) {
+                    registered = coalesce(registered);
+                }
+                return registered.map(record -> Tuples.of(batchRequestId, record));
+            })
+            .doOnNext(pending -> {
+                if (Config.PARTITION_MAX_IN_FLIGHT > 0) {
+                    pauseController.received(pending.getT2().receiverOffset().topicPartition(), 1);
+                }
+            })
+            // Every lane holds the record it's calling on top of its queue, hence the lanes taken off the prefetch
+            .groupBy(pending -> streamGroup(pending.getT2()), Config.PIPELINE_MAX_IN_FLIGHT - Config.STREAM_LANES)
+            .flatMap(
+                lane ->
+                    lane.concatMap(
+                        pending ->
+                            processRecord(pending.getT2(), pending.getT1())
+                                .doFinally(__ -> {
+                                    if (Config.PARTITION_MAX_IN_FLIGHT > 0) {
+                                        var topicPartition = pending.getT2().receiverOffset().topicPartition();
+                                        pauseController.completed(topicPartition, 1);
+                                    }
+                                }),
+                        // Not taking the lane's next record before this one is done
+                        0
+                    ),
+                Config.STREAM_LANES
+            );
+    }
+
     public Flux<?> stream() {
+        if (Config.PIPELINE_MAX_IN_FLIGHT > 0) {
+            return streamPipelined();
+        }
+        if (Config.PARTITION_MAX_IN_FLIGHT > 0) {
+            return streamByPartition();
+        }
+
         var stream = kafkaReceiver.receiveBatch();
         if (Config.WINDOW_DURATION > 0) {
+            // The polls of a window are processed one by one, unless records are coalesced over the whole window
             return stream
                 .windowTimeout(Integer.MAX_VALUE, Duration.ofMillis(Config.WINDOW_DURATION), true)
                 .concatMap(windows ->
-                    windows.concatMap(records ->
-                        Config.TARGET_PROCESS_TYPE.equals("batch") ? processAsBatch(records) : processAsStream(records)
-                    )
+                    Config.COALESCE_BY_KEY ? process(Flux.concat(windows)) : windows.concatMap(this::process)
                 );
         } else {
-            return stream.concatMap(records ->
-                Config.TARGET_PROCESS_TYPE.equals("batch") ? processAsBatch(records) : processAsStream(records)
-            );
+            return stream.concatMap(this::process);
         }
     }
 }
@@ -0,0 +1,72 @@
+package kafka;
+
+import configuration.Config;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import monitoring.Monitor;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.kafka.receiver.ReceiverRecord;
+import reactor.kafka.sender.KafkaSender;
+import reactor.kafka.sender.SenderRecord;
+import target.TargetException;
+
+public class DeadLetterProducer {
+
+    private record Pending(ReceiverRecord<byte[], byte[]> record, long sendStart) {}
+
+    private final KafkaSender<byte[], byte[]> kafkaSender;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+
+    public DeadLetterProducer(KafkaSender<byte[], byte[]> kafkaSender) {
+        this.kafkaSender = kafkaSender;
+    }
+
+    // All records go out as one Flux, so they share the sender's in-flight window and the producer's batches
+    public Mono<Void> produce(
+        List<ReceiverRecord<byte[], byte[]>> records,
+        TargetException reason,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        var sent = new AtomicInteger();
+        var completed = new AtomicInteger();
+
+        return kafkaSender
+            .send(
+                Flux
+                    .fromIterable(records)
+                    .map(record -> {
+                        sent.incrementAndGet();
+                        Monitor.deadLetterQueueDepth(queueDepth.incrementAndGet());
+                        return SenderRecord.create(
+                            new ProducerRecord<>(
+                                Config.DEAD_LETTER_TOPIC,
+                                null,
+                                record.key(),
+                                record.value(),
+                                reason.getHeaders(record)
+                            ),
+                            new Pending(record, System.nanoTime())
+                        );
+                    })
+            )
+            .doOnNext(result -> {
+                completed.incrementAndGet();
+                Monitor.deadLetterQueueDepth(queueDepth.decrementAndGet());
+                var pending = result.correlationMetadata();
+                Monitor.deadLetterProduced(
+                    pending.record(),
+                    batchRequestId,
+                    targetRequestId,
+                    System.nanoTime() - pending.sendStart()
+                );
+            })
+            .doOnError(exception ->
+                Monitor.produceError(Config.DEAD_LETTER_TOPIC, batchRequestId, targetRequestId, exception)
+            )
+            .doFinally(__ -> Monitor.deadLetterQueueDepth(queueDepth.addAndGet(completed.get() - sent.get())))
+            .then();
+    }
+}
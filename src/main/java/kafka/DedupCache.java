@@ -0,0 +1,78 @@
+package kafka;
+
+import configuration.Config;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.common.TopicPartition;
+import reactor.kafka.receiver.ReceiverOffset;
+
+// Remembers the offsets recently completed on every partition, so the records Kafka redelivers after a rebalance
+// (everything past the last commit) are acknowledged instead of being sent to the target again. A partition
+// keeps its last DEDUP_CACHE_SIZE offsets or so as bits in a ring of 64 offset blocks, each stamped with its last
+// completion: newer blocks overwrite older ones and blocks older than DEDUP_CACHE_TTL_MS are ignored. Partitions
+// are kept when revoked, an eager rebalance mostly assigns them back. It's in memory only, records redelivered
+// to another instance or after a restart still go to the target
+public class DedupCache {
+
+    private final Map<TopicPartition, PartitionBlocks> partitions = new ConcurrentHashMap<>();
+
+    public static DedupCache create() {
+        if (Config.DEDUP_CACHE_SIZE <= 0) {
+            return null;
+        }
+        return new DedupCache();
+    }
+
+    public boolean contains(ReceiverOffset offset) {
+        var partition = partitions.get(offset.topicPartition());
+        return partition != null && partition.contains(offset.offset(), System.currentTimeMillis());
+    }
+
+    public void completed(ReceiverOffset offset) {
+        partitions
+            .computeIfAbsent(offset.topicPartition(), __ -> new PartitionBlocks())
+            .completed(offset.offset(), System.currentTimeMillis());
+    }
+
+    private static class PartitionBlocks {
+
+        // One more block than needed, the oldest one is partly overwritten
+        private final long[] blocks = new long[(Config.DEDUP_CACHE_SIZE + 63) / 64 + 1];
+        private final long[] bits = new long[blocks.length];
+        private final long[] stamps = new long[blocks.length];
+
+        PartitionBlocks() {
+            Arrays.fill(blocks, -1);
+        }
+
+        synchronized boolean contains(long offset, long now) {
+            var block = offset >>> 6;
+            var slot = slot(block);
+            return blocks[slot] == block && !expired(slot, now) && (bits[slot] & (1L << (offset & 63))) != 0;
+        }
+
+        synchronized void completed(long offset, long now) {
+            var block = offset >>> 6;
+            var slot = slot(block);
+            if (blocks[slot] != block) {
+                // Already overwritten by newer offsets, unless those are stale (the offsets went back)
+                if (blocks[slot] > block && !expired(slot, now)) {
+                    return;
+                }
+                blocks[slot] = block;
+                bits[slot] = 0;
+            }
+            bits[slot] |= 1L << (offset & 63);
+            stamps[slot] = now;
+        }
+
+        private int slot(long block) {
+            return (int) (block % blocks.length);
+        }
+
+        private boolean expired(int slot, long now) {
+            return Config.DEDUP_CACHE_TTL_MS > 0 && now - stamps[slot] >= Config.DEDUP_CACHE_TTL_MS;
+        }
+    }
+}
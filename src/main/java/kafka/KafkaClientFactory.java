@@ -3,7 +3,7 @@ package kafka;
 import configuration.Config;
 import java.util.Properties;
 import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
 import reactor.kafka.receiver.ReceiverOptions;
 import reactor.kafka.sender.SenderOptions;
 
@@ -47,16 +47,16 @@ public class KafkaClientFactory {
         };
     }
 
-    public static ReceiverOptions<String, String> createReceiverOptions() {
+    public static ReceiverOptions<byte[], byte[]> createReceiverOptions() {
         var props = getAuthProperties();
         props.put(ConsumerConfig.GROUP_ID_CONFIG, Config.GROUP_ID);
         props.put(
             ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
-            "org.apache.kafka.common.serialization.StringDeserializer"
+            "org.apache.kafka.common.serialization.ByteArrayDeserializer"
         );
         props.put(
             ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
-            "org.apache.kafka.common.serialization.StringDeserializer"
+            "org.apache.kafka.common.serialization.ByteArrayDeserializer"
         );
         if (Config.ASSIGNMENT_STRATEGY != null && Config.ASSIGNMENT_STRATEGY.size() > 0) {
             props.put(
@@ -73,17 +73,13 @@ public class KafkaClientFactory {
         return ReceiverOptions.create(props);
     }
 
-    public static SenderOptions<String, String> createSenderOptions() {
+    public static SenderOptions<byte[], byte[]> createSenderOptions() {
         var props = getAuthProperties();
-        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
+        props.put("key.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        props.put("value.serializer", "org.apache.kafka.common.serialization.ByteArraySerializer");
+        props.put(ProducerConfig.LINGER_MS_CONFIG, Config.DEAD_LETTER_LINGER_MS);
+        props.put(ProducerConfig.BATCH_SIZE_CONFIG, Config.DEAD_LETTER_BATCH_SIZE);
+        props.put(ProducerConfig.COMPRESSION_TYPE_CONFIG, Config.DEAD_LETTER_COMPRESSION_TYPE);
         return SenderOptions.create(props);
     }
-
-    public static <K, V> KafkaProducer<K, V> createProducer() {
-        var props = getAuthProperties();
-        props.put("key.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        props.put("value.serializer", "org.apache.kafka.common.serialization.StringSerializer");
-        return new KafkaProducer<>(props);
-    }
 }
@@ -0,0 +1,104 @@
+package kafka;
+
+import java.util.ArrayDeque;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.common.TopicPartition;
+import reactor.kafka.receiver.ReceiverOffset;
+
+// Acknowledges only the highest contiguous completed offset of each partition, so records completing out of
+// order (parallel batch chunks, different keys of one partition) never commit past a record still in flight.
+// Completed offsets are also remembered in the dedup cache, if any, to skip them when they're redelivered
+public class OffsetCommitTracker {
+
+    private final Map<TopicPartition, PartitionOffsets> partitions = new ConcurrentHashMap<>();
+    private final DedupCache dedupCache;
+
+    public OffsetCommitTracker(DedupCache dedupCache) {
+        this.dedupCache = dedupCache;
+    }
+
+    // Must be called in poll order, before the record is handed to parallel processing
+    public void register(ReceiverOffset offset) {
+        partitions.computeIfAbsent(offset.topicPartition(), __ -> new PartitionOffsets()).register(offset);
+    }
+
+    // Whether the record was already completed before being redelivered, always false without a dedup cache
+    public boolean isRedelivered(ReceiverOffset offset) {
+        return dedupCache != null && dedupCache.contains(offset);
+    }
+
+    public void complete(ReceiverOffset offset) {
+        if (dedupCache != null) {
+            dedupCache.completed(offset);
+        }
+
+        var partition = partitions.get(offset.topicPartition());
+        if (partition == null) {
+            return;
+        }
+
+        var committable = partition.complete(offset.offset());
+        if (committable != null) {
+            committable.acknowledge();
+        }
+    }
+
+    public void revoke(Collection<TopicPartition> topicPartitions) {
+        topicPartitions.forEach(partitions::remove);
+    }
+
+    private static class PartitionOffsets {
+
+        private static final int COMPACT_THRESHOLD = 4096;
+
+        private final ArrayDeque<ReceiverOffset> pending = new ArrayDeque<>();
+        private BitSet completed = new BitSet();
+        private long base;
+
+        synchronized void register(ReceiverOffset offset) {
+            // Offsets only go back when the partition is consumed again from its committed offset (after a
+            // rebalance, while records of the previous assignment were still being registered), everything
+            // pending from before is redelivered. Completions of the previous records still mark their offsets,
+            // they were processed all the same
+            var last = pending.peekLast();
+            if (last != null && offset.offset() <= last.offset()) {
+                pending.clear();
+            }
+            if (pending.isEmpty()) {
+                completed.clear();
+                base = offset.offset();
+            }
+            completed.clear(index(offset.offset()));
+            pending.addLast(offset);
+        }
+
+        synchronized ReceiverOffset complete(long offset) {
+            var head = pending.peekFirst();
+            if (head == null || offset < head.offset()) {
+                return null;
+            }
+            completed.set(index(offset));
+
+            ReceiverOffset committable = null;
+            while (head != null && completed.get(index(head.offset()))) {
+                committable = pending.pollFirst();
+                head = pending.peekFirst();
+            }
+
+            // Bits below the head are never read again, drop them once enough have accumulated
+            if (head != null && head.offset() - base >= COMPACT_THRESHOLD) {
+                var shift = index(head.offset());
+                completed = completed.get(shift, Math.max(shift, completed.length()));
+                base = head.offset();
+            }
+            return committable;
+        }
+
+        private int index(long offset) {
+            return (int) (offset - base);
+        }
+    }
+}
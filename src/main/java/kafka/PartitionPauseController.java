@@ -0,0 +1,100 @@
+package kafka;
+
+import configuration.Config;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import monitoring.Monitor;
+import org.apache.kafka.common.TopicPartition;
+import reactor.kafka.receiver.KafkaReceiver;
+
+// Pauses the fetches of partitions that can't take more records right now and keeps polling the others:
+// - a partition with more than PARTITION_MAX_IN_FLIGHT records handed to processing and not finished yet,
+//   until it's down to half of that
+// - partitions of topics held for some reason (an open route circuit breaker...), until the hold is released
+// The receiver leaves partitions paused through doOnConsumer alone when it pauses and resumes everything for its
+// own backpressure, but a rebalance doesn't, so newly assigned partitions are paused again if they should be
+public class PartitionPauseController {
+
+    private final KafkaReceiver<?, ?> kafkaReceiver;
+
+    // Guarded by this
+    private final Map<TopicPartition, Integer> inFlight = new HashMap<>();
+    private final Set<TopicPartition> overLimit = new HashSet<>();
+    private final Map<Object, Predicate<String>> holds = new HashMap<>();
+    private final Set<TopicPartition> paused = new HashSet<>();
+
+    public PartitionPauseController(KafkaReceiver<?, ?> kafkaReceiver) {
+        this.kafkaReceiver = kafkaReceiver;
+    }
+
+    public synchronized void received(TopicPartition topicPartition, int count) {
+        var records = inFlight.merge(topicPartition, count, Integer::sum);
+        if (records > Config.PARTITION_MAX_IN_FLIGHT && overLimit.add(topicPartition)) {
+            reconcile();
+        }
+    }
+
+    public synchronized void completed(TopicPartition topicPartition, int count) {
+        var records = inFlight.computeIfPresent(topicPartition, (__, current) -> current - count);
+        if (records != null && records <= Config.PARTITION_MAX_IN_FLIGHT / 2 && overLimit.remove(topicPartition)) {
+            reconcile();
+        }
+    }
+
+    // Pauses the partitions of the topics matching topics until released with the same reason
+    public synchronized void hold(Object reason, Predicate<String> topics) {
+        holds.put(reason, topics);
+        reconcile();
+    }
+
+    public synchronized void release(Object reason) {
+        if (holds.remove(reason) != null) {
+            reconcile();
+        }
+    }
+
+    // Kafka drops the paused state of the partitions it assigns
+    public synchronized void assigned(Collection<TopicPartition> topicPartitions) {
+        paused.removeAll(topicPartitions);
+        reconcile();
+    }
+
+    private boolean shouldPause(TopicPartition topicPartition) {
+        return (
+            overLimit.contains(topicPartition) ||
+            holds.values().stream().anyMatch(topics -> topics.test(topicPartition.topic()))
+        );
+    }
+
+    // Called holding the lock, so the consumer thread applies the changes in order
+    private void reconcile() {
+        kafkaReceiver
+            .doOnConsumer(consumer -> {
+                var pause = new ArrayList<TopicPartition>();
+                var resume = new ArrayList<TopicPartition>();
+                synchronized (this) {
+                    var assignment = consumer.assignment();
+                    paused.retainAll(assignment);
+                    for (var topicPartition : assignment) {
+                        if (shouldPause(topicPartition)) {
+                            if (paused.add(topicPartition)) {
+                                pause.add(topicPartition);
+                            }
+                        } else if (paused.remove(topicPartition)) {
+                            resume.add(topicPartition);
+                        }
+                    }
+                    Monitor.pausedPartitions(paused.size());
+                }
+                consumer.pause(pause);
+                consumer.resume(resume);
+                return true;
+            })
+            .subscribe(null, Monitor::consumerError);
+    }
+}
@@ -0,0 +1,408 @@
+package kafka;
+
+import configuration.Config;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import monitoring.Monitor;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.record.TimestampType;
+import reactor.kafka.receiver.ReceiverOffset;
+import reactor.kafka.receiver.ReceiverRecord;
+import target.ITarget;
+import target.TargetException;
+
+// Records the target keeps failing with a retried status (or a connection failure) are parked here instead of
+// holding up their poll batch, and replayed in the background with RETRY_POLICY_EXPONENTIAL_BACKOFF. Records
+// of the same key (or partition, for null keys) queue behind a parked one to keep their order, other keys go
+// on. A parked record is only completed in the commit tracker once it's resolved, so the committed offset
+// never passes it.
+// Record payloads are written to a memory-mapped file used as a ring rather than kept on the heap (only records
+// larger than the whole file are), and an entry's space is reclaimed once it and the entries written before it
+// are resolved. It isn't recovered on restart, Kafka redelivers everything past the committed offset anyway.
+// The log is bounded by its file and RETRY_LOG_MAX_PARKED: records that don't fit wait for room, holding up
+// their lane, and the listeners are told to pause the partitions until half of it is free again
+public class RetryLog {
+
+    private static class Entry {
+
+        private final ReceiverOffset offset;
+        private final String topic;
+        private final int partition;
+        private final long timestamp;
+        private final TimestampType timestampType;
+        private final long parkedAt = System.currentTimeMillis();
+        private int position = -1;
+        // Where the entry ends in the ring, counting every byte ever written, and whether it can be reclaimed
+        private long end;
+        private boolean freed;
+        private ReceiverRecord<byte[], byte[]> record;
+        private int attempts;
+        private TargetException lastFailure;
+
+        private Entry(ReceiverRecord<byte[], byte[]> record) {
+            this.offset = record.receiverOffset();
+            this.topic = record.topic();
+            this.partition = record.partition();
+            this.timestamp = record.timestamp();
+            this.timestampType = record.timestampType();
+        }
+    }
+
+    private record Key(TopicPartition topicPartition, ByteBuffer key) {}
+
+    private record Waiting(
+        ReceiverRecord<byte[], byte[]> record,
+        TargetException reason,
+        CompletableFuture<Void> parked
+    ) {}
+
+    private final ITarget target;
+    private final DeadLetterProducer deadLetterProducer;
+    private final OffsetCommitTracker commitTracker;
+    private final MappedByteBuffer log;
+    private final ScheduledExecutorService replayer;
+
+    // Guarded by this
+    private final Map<Key, ArrayDeque<Entry>> keys = new HashMap<>();
+    // The entries in the file in the order they were written, and the records waiting for room
+    private final ArrayDeque<Entry> written = new ArrayDeque<>();
+    private final ArrayDeque<Waiting> waiting = new ArrayDeque<>();
+    private long head;
+    private long tail;
+    private int parked;
+    private boolean full;
+    private volatile Runnable fullListener = () -> {};
+    private volatile Runnable freedListener = () -> {};
+
+    private RetryLog(ITarget target, DeadLetterProducer deadLetterProducer, OffsetCommitTracker commitTracker)
+        throws IOException {
+        this.target = target;
+        this.deadLetterProducer = deadLetterProducer;
+        this.commitTracker = commitTracker;
+        try (
+            var channel = FileChannel.open(
+                Path.of(Config.RETRY_LOG_PATH),
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+            )
+        ) {
+            this.log = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) Config.RETRY_LOG_SIZE_MB * 1024 * 1024);
+        }
+        this.replayer =
+            Executors.newSingleThreadScheduledExecutor(runnable -> {
+                var thread = new Thread(runnable, "retry-log-replay");
+                thread.setDaemon(true);
+                return thread;
+            });
+    }
+
+    public static RetryLog create(
+        ITarget target,
+        DeadLetterProducer deadLetterProducer,
+        OffsetCommitTracker commitTracker
+    ) throws IOException {
+        if (Config.RETRY_LOG_PATH == null) {
+            return null;
+        }
+        return new RetryLog(target, deadLetterProducer, commitTracker);
+    }
+
+    // The first listener is called when the log fills up, the second once half of it is free again
+    public void onFullChange(Runnable fullListener, Runnable freedListener) {
+        this.fullListener = fullListener;
+        this.freedListener = freedListener;
+    }
+
+    public synchronized boolean isParked(ReceiverRecord<byte[], byte[]> record) {
+        return keys.containsKey(keyOf(record));
+    }
+
+    // reason is null for records parked only because their key is. Completes once the record is parked, which
+    // waits for room when the log is full
+    public CompletableFuture<Void> park(ReceiverRecord<byte[], byte[]> record, TargetException reason) {
+        var waiter = new Waiting(record, reason, new CompletableFuture<>());
+        List<Runnable> admitted;
+        synchronized (this) {
+            waiting.addLast(waiter);
+            admitted = admit();
+        }
+        admitted.forEach(Runnable::run);
+        return waiter.parked();
+    }
+
+    public void revoke(Collection<TopicPartition> topicPartitions) {
+        var dropped = new ArrayList<Waiting>();
+        List<Runnable> admitted;
+        synchronized (this) {
+            var revoked = keys
+                .keySet()
+                .stream()
+                .filter(key -> topicPartitions.contains(key.topicPartition()))
+                .toList();
+            for (var key : revoked) {
+                for (var entry : keys.remove(key)) {
+                    free(entry);
+                    parked--;
+                }
+            }
+            // Dropped without being completed in the commit tracker, the partition's new owner gets them again
+            for (var waiter : waiting) {
+                if (topicPartitions.contains(waiter.record().receiverOffset().topicPartition())) {
+                    dropped.add(waiter);
+                }
+            }
+            waiting.removeAll(dropped);
+            admitted = admit();
+        }
+        dropped.forEach(waiter -> waiter.parked().complete(null));
+        admitted.forEach(Runnable::run);
+    }
+
+    // Parks the waiting records there's room for, in order, and returns what's left to do out of the lock
+    private List<Runnable> admit() {
+        var admitted = new ArrayList<Runnable>();
+        while (!waiting.isEmpty() && parked < Config.RETRY_LOG_MAX_PARKED) {
+            var waiter = waiting.peekFirst();
+            var entry = new Entry(waiter.record());
+            if (!append(entry, waiter.record())) {
+                break;
+            }
+            waiting.pollFirst();
+            entry.attempts = waiter.reason() != null ? 1 : 0;
+            entry.lastFailure = waiter.reason();
+            var key = keyOf(waiter.record());
+            var queue = keys.computeIfAbsent(key, __ -> new ArrayDeque<>());
+            queue.addLast(entry);
+            var first = queue.size() == 1;
+            parked++;
+            admitted.add(() -> {
+                Monitor.retryLogParked(waiter.record());
+                if (first) {
+                    schedule(key, entry);
+                }
+                waiter.parked().complete(null);
+            });
+        }
+        Monitor.retryLogDepth(parked);
+
+        if (!full && !waiting.isEmpty()) {
+            full = true;
+            fullListener.run();
+        } else if (
+            full &&
+            waiting.isEmpty() &&
+            parked <= Config.RETRY_LOG_MAX_PARKED / 2 &&
+            head - tail <= log.capacity() / 2
+        ) {
+            full = false;
+            freedListener.run();
+        }
+        return admitted;
+    }
+
+    private void schedule(Key key, Entry entry) {
+        replayer.schedule(() -> replay(key, entry), delay(entry.attempts), TimeUnit.MILLISECONDS);
+    }
+
+    private void replay(Key key, Entry entry) {
+        ReceiverRecord<byte[], byte[]> record;
+        synchronized (this) {
+            if (!isHead(key, entry)) {
+                return;
+            }
+            record = read(entry);
+        }
+
+        var batchRequestId = UUID.randomUUID().toString();
+        var targetRequestId = UUID.randomUUID().toString();
+        target
+            .call(record, batchRequestId, targetRequestId)
+            .whenComplete((result, throwable) -> {
+                if (throwable == null && !(result instanceof TargetException)) {
+                    resolve(key, entry, record);
+                    return;
+                }
+
+                entry.attempts++;
+                entry.lastFailure =
+                    result instanceof TargetException targetException
+                        ? targetException
+                        : new TargetException(null, null, throwable);
+                var expired =
+                    Config.RETRY_LOG_MAX_DURATION_MS > 0 &&
+                    System.currentTimeMillis() - entry.parkedAt >= Config.RETRY_LOG_MAX_DURATION_MS;
+                if (expired && Config.DEAD_LETTER_TOPIC != null) {
+                    deadLetterProducer
+                        .produce(List.of(record), entry.lastFailure, batchRequestId, targetRequestId)
+                        .subscribe(null, __ -> schedule(key, entry), () -> resolve(key, entry, record));
+                } else {
+                    schedule(key, entry);
+                }
+            });
+    }
+
+    private void resolve(Key key, Entry entry, ReceiverRecord<byte[], byte[]> record) {
+        Entry next = null;
+        List<Runnable> admitted;
+        synchronized (this) {
+            if (!isHead(key, entry)) {
+                return;
+            }
+            var queue = keys.get(key);
+            queue.pollFirst();
+            if (queue.isEmpty()) {
+                keys.remove(key);
+            } else {
+                next = queue.peekFirst();
+            }
+            free(entry);
+            parked--;
+            admitted = admit();
+        }
+
+        commitTracker.complete(entry.offset);
+        Monitor.retryLogResolved(record, entry.attempts);
+        if (next != null) {
+            schedule(key, next);
+        }
+        admitted.forEach(Runnable::run);
+    }
+
+    private boolean isHead(Key key, Entry entry) {
+        var queue = keys.get(key);
+        return queue != null && queue.peekFirst() == entry;
+    }
+
+    // The ring's tail moves past the resolved entries at its start, and back to the start of the file once it's
+    // empty
+    private void free(Entry entry) {
+        entry.freed = true;
+        while (!written.isEmpty() && written.peekFirst().freed) {
+            tail = written.pollFirst().end;
+        }
+        if (written.isEmpty()) {
+            head = 0;
+            tail = 0;
+        }
+    }
+
+    private static long delay(int attempts) {
+        if (attempts == 0) {
+            return 0;
+        }
+        var delay = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(0);
+        var maxDelay = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(1);
+        var delayFactor = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(2);
+        return (long) Math.min(delay * Math.pow(delayFactor, attempts - 1), maxDelay);
+    }
+
+    private static Key keyOf(ReceiverRecord<byte[], byte[]> record) {
+        var key = record.key() == null ? null : ByteBuffer.wrap(record.key());
+        return new Key(record.receiverOffset().topicPartition(), key);
+    }
+
+    // [key][value][header count]([header key][header value])*, every field prefixed by its length, -1 for null.
+    // An entry is written in one piece, from the start of the file when it doesn't fit before its end. Returns
+    // false when there's no room for it
+    private boolean append(Entry entry, ReceiverRecord<byte[], byte[]> record) {
+        var size = 4 + length(record.key()) + 4 + length(record.value()) + 4;
+        for (Header header : record.headers()) {
+            size += 4 + header.key().getBytes(StandardCharsets.UTF_8).length + 4 + length(header.value());
+        }
+        if (size > log.capacity()) {
+            entry.record = record;
+            return true;
+        }
+
+        var position = (int) (head % log.capacity());
+        var skipped = log.capacity() - position < size ? log.capacity() - position : 0;
+        if (head + skipped + size - tail > log.capacity()) {
+            return false;
+        }
+        entry.position = (position + skipped) % log.capacity();
+        entry.end = head + skipped + size;
+        head = entry.end;
+        written.addLast(entry);
+
+        log.position(entry.position);
+        put(record.key());
+        put(record.value());
+        log.putInt(record.headers().toArray().length);
+        for (Header header : record.headers()) {
+            put(header.key().getBytes(StandardCharsets.UTF_8));
+            put(header.value());
+        }
+        return true;
+    }
+
+    private ReceiverRecord<byte[], byte[]> read(Entry entry) {
+        if (entry.record != null) {
+            return entry.record;
+        }
+
+        var in = log.duplicate().position(entry.position);
+        var key = get(in);
+        var value = get(in);
+        var headers = new RecordHeaders();
+        for (int i = in.getInt(); i > 0; i--) {
+            headers.add(new String(get(in), StandardCharsets.UTF_8), get(in));
+        }
+        var consumerRecord = new ConsumerRecord<>(
+            entry.topic,
+            entry.partition,
+            entry.offset.offset(),
+            entry.timestamp,
+            entry.timestampType,
+            key == null ? -1 : key.length,
+            value == null ? -1 : value.length,
+            key,
+            value,
+            headers,
+            Optional.empty()
+        );
+        return new ReceiverRecord<>(consumerRecord, entry.offset);
+    }
+
+    private void put(byte[] bytes) {
+        log.putInt(bytes == null ? -1 : bytes.length);
+        if (bytes != null) {
+            log.put(bytes);
+        }
+    }
+
+    private static byte[] get(ByteBuffer in) {
+        var length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        var bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    private static int length(byte[] bytes) {
+        return bytes == null ? 0 : bytes.length;
+    }
+}
@@ -0,0 +1,85 @@
+package monitoring;
+
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.json.JSONObject;
+
+class LogWriter implements Runnable {
+
+    private static final int DRAIN_SIZE = 256;
+
+    private final BlockingQueue<Supplier<JSONObject>> queue;
+    private final Thread thread;
+    private volatile boolean closed;
+
+    LogWriter(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.thread = new Thread(this, "monitor-log-writer");
+        this.thread.setDaemon(true);
+    }
+
+    LogWriter start() {
+        thread.start();
+        return this;
+    }
+
+    boolean offer(Supplier<JSONObject> log) {
+        return !closed && queue.offer(log);
+    }
+
+    @Override
+    public void run() {
+        var logs = new ArrayList<Supplier<JSONObject>>(DRAIN_SIZE);
+        while (!closed) {
+            try {
+                var log = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (log == null) {
+                    continue;
+                }
+                logs.add(log);
+                queue.drainTo(logs, DRAIN_SIZE - 1);
+                print(logs);
+                logs.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Stops the writer thread and prints whatever is still queued on the calling thread
+    void close() {
+        closed = true;
+        try {
+            thread.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        var logs = new ArrayList<Supplier<JSONObject>>(queue.size());
+        queue.drainTo(logs);
+        print(logs);
+    }
+
+    private static void print(ArrayList<Supplier<JSONObject>> logs) {
+        var lines = new StringBuilder();
+        for (var log : logs) {
+            // A log failing to build is reported in its place, it mustn't take the writer thread or its batch down
+            JSONObject line;
+            try {
+                line = log.get();
+            } catch (RuntimeException e) {
+                line =
+                    new JSONObject()
+                        .put("level", "error")
+                        .put("message", "failed to write log")
+                        .put("err", new JSONObject().put("class", e.getClass()).put("message", e.getMessage()));
+            }
+            lines.append(line.toString()).append(System.lineSeparator());
+        }
+        System.out.print(lines);
+        System.out.flush();
+    }
+}
@@ -1,11 +1,13 @@
 package monitoring;
 
 import configuration.Config;
+import dev.failsafe.CircuitBreaker;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
 import org.json.JSONObject;
@@ -25,6 +27,34 @@ public class Monitor {
     private static Histogram processBatchExecutionTime;
     private static Histogram processMessageExecutionTime;
     private static Gauge assignedPartitions;
+    private static Counter logEventsDropped;
+    private static Gauge targetConcurrencyLimit;
+    private static Gauge deadLetterQueueDepth;
+    private static Histogram deadLetterSendLatency;
+    private static Gauge retryLogDepth;
+    private static Gauge pausedPartitions;
+    private static Gauge targetCircuitOpen;
+    private static Gauge retryBudgetTokens;
+    private static Gauge targetRateLimitWaiting;
+    private static Counter retryBudgetExhausted;
+    private static Counter redeliveredRecordsSkipped;
+    private static Counter recordsCoalesced;
+
+    private enum Level {
+        INFO,
+        ERROR;
+
+        @Override
+        public String toString() {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final int SAMPLE_RANGE = 1 << 16;
+
+    private static Level logLevel = Level.INFO;
+    private static int sampleThreshold = SAMPLE_RANGE;
+    private static volatile LogWriter logWriter;
 
     private static double[] buckets = new double[0];
 
@@ -38,6 +68,11 @@ public class Monitor {
                     .toArray();
         }
 
+        if (Config.LOG_LEVEL != null) {
+            logLevel = parseLevel(Config.LOG_LEVEL);
+        }
+        sampleThreshold = (int) Math.ceil(Math.min(Math.max(Config.LOG_RECORD_SAMPLE_RATE, 0), 1) * SAMPLE_RANGE);
+
         assignedPartitions = Gauge.build().name("assigned_partitions").help("assigned_partitions").register();
 
         messageLatency =
@@ -75,8 +110,45 @@ public class Monitor {
 
         deadLetterProduced = Counter.build().name("dead_letter_produced").help("dead_letter_produced").register();
 
+        deadLetterQueueDepth =
+            Gauge.build().name("dead_letter_queue_depth").help("dead_letter_queue_depth").register();
+
+        deadLetterSendLatency =
+            Histogram
+                .build()
+                .buckets(buckets)
+                .name("dead_letter_send_latency")
+                .help("dead_letter_send_latency")
+                .register();
+
         produceError = Counter.build().name("produce_error").help("produce_error").register();
 
+        retryLogDepth = Gauge.build().name("retry_log_depth").help("retry_log_depth").register();
+
+        pausedPartitions = Gauge.build().name("paused_partitions").help("paused_partitions").register();
+
+        targetCircuitOpen =
+            Gauge.build().name("target_circuit_open").labelNames("route").help("target_circuit_open").register();
+
+        retryBudgetTokens =
+            Gauge.build().name("target_retry_budget_tokens").help("target_retry_budget_tokens").register();
+
+        targetRateLimitWaiting =
+            Gauge
+                .build()
+                .name("target_rate_limit_waiting")
+                .labelNames("route")
+                .help("target_rate_limit_waiting")
+                .register();
+
+        retryBudgetExhausted =
+            Counter.build().name("target_retry_budget_exhausted").help("target_retry_budget_exhausted").register();
+
+        redeliveredRecordsSkipped =
+            Counter.build().name("redelivered_records_skipped").help("redelivered_records_skipped").register();
+
+        recordsCoalesced = Counter.build().name("records_coalesced").help("records_coalesced").register();
+
         targetExecutionRetry =
             Counter
                 .build()
@@ -92,148 +164,164 @@ public class Monitor {
                 .labelNames("attempt")
                 .help("target_connection_retry")
                 .register();
+
+        logEventsDropped = Counter.build().name("log_events_dropped").help("log_events_dropped").register();
+
+        targetConcurrencyLimit =
+            Gauge.build().name("target_concurrency_limit").help("target_concurrency_limit").register();
+
+        if (Config.LOG_QUEUE_SIZE > 0) {
+            logWriter = new LogWriter(Config.LOG_QUEUE_SIZE).start();
+        }
     }
 
     public static void waitingForTargetHealthcheck() {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "waiting for target healthcheck")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("targetBaseUrl", Config.TARGET_BASE_URL)
-                        .put("targetHealthCheck", Config.TARGET_HEALTHCHECK)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "waiting for target healthcheck")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("targetBaseUrl", Config.TARGET_BASE_URL)
+                            .put("targetHealthCheck", Config.TARGET_HEALTHCHECK)
+                    )
         );
     }
 
     public static void targetHealthcheckPassedSuccessfully() {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "target healthcheck passed successfully")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("targetBaseUrl", Config.TARGET_BASE_URL)
-                        .put("targetHealthCheck", Config.TARGET_HEALTHCHECK)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "target healthcheck passed successfully")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("targetBaseUrl", Config.TARGET_BASE_URL)
+                            .put("targetHealthCheck", Config.TARGET_HEALTHCHECK)
+                    )
         );
     }
 
     public static void batchProcessStarted(String requestId) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "batch process started")
-                .put("extra", new JSONObject().put("batchRequestId", requestId))
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "batch process started")
+                    .put("extra", new JSONObject().put("batchRequestId", requestId))
         );
     }
 
     public static void batchProcessCompleted(int count, Long batchStartTimestamp, String batchRequestId) {
         var executionTimeMs = new Date().getTime() - batchStartTimestamp;
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "batch process completed")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("executionTime", executionTimeMs)
-                        .put("count", count)
-                        .put("batchRequestId", batchRequestId)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "batch process completed")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("executionTime", executionTimeMs)
+                            .put("count", count)
+                            .put("batchRequestId", batchRequestId)
+                    )
         );
         processBatchExecutionTime.observe((double) executionTimeMs / 1000);
     }
 
     public static void processMessageStarted(
-        ConsumerRecord<String, String> record,
+        ConsumerRecord<byte[], byte[]> record,
         String batchRequestId,
         String targetRequestId
     ) {
         messageLatency.labels(record.topic()).observe(((double) (new Date().getTime() - record.timestamp())) / 1000);
         processMessageStarted.inc();
 
-        write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "process message started")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put(
-                            "record",
-                            new JSONObject()
-                                .put("value", record.value())
-                                .put("topic", record.topic())
-                                .put("partition", record.partition())
-                                .put("offset", record.offset())
-                                .put(
-                                    "headers",
-                                    Arrays
-                                        .stream(record.headers().toArray())
-                                        .map(header ->
-                                            header.key() + "->" + new String(header.value(), StandardCharsets.UTF_8)
-                                        )
-                                        .collect(Collectors.joining(","))
-                                )
-                                .put("key", record.key())
-                        )
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "process message started")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put(
+                                "record",
+                                new JSONObject()
+                                    .put("value", truncate(asString(record.value())))
+                                    .put("topic", record.topic())
+                                    .put("partition", record.partition())
+                                    .put("offset", record.offset())
+                                    .put(
+                                        "headers",
+                                        Arrays
+                                            .stream(record.headers().toArray())
+                                            .map(header -> header.key() + "->" + asString(header.value()))
+                                            .collect(Collectors.joining(","))
+                                    )
+                                    .put("key", asString(record.key()))
+                            )
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
     }
 
     public static void processMessageCompleted(
-        ConsumerRecord<String, String> record,
+        ConsumerRecord<byte[], byte[]> record,
         String batchRequestId,
         String targetRequestId,
         long executionStart,
         int statusCode,
         Throwable throwable
     ) {
-        write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "process message completed")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("recordKey", record.key())
-                        .put("statusCode", statusCode)
-                        .put("exception", throwable)
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "process message completed")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("recordKey", asString(record.key()))
+                            .put("statusCode", statusCode)
+                            .put("exception", throwable)
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
         processMessageExecutionTime.observe(((double) (new Date().getTime() - executionStart)) / 1000);
         processMessageSuccess.inc();
     }
 
     public static void targetCallStarted(
-        List<ReceiverRecord<String, String>> records,
+        List<ReceiverRecord<byte[], byte[]>> records,
         String targetRequestId,
         String batchRequestId
     ) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "target call started")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("count", records.size())
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "target call started")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("count", records.size())
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
     }
 
     public static void targetCallCompleted(
-        List<ReceiverRecord<String, String>> records,
+        List<ReceiverRecord<byte[], byte[]>> records,
         String targetRequestId,
         String batchRequestId,
         long executionStart,
@@ -242,223 +330,359 @@ public class Monitor {
     ) {
         var executionTimeMs = new Date().getTime() - executionStart;
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "target call completed")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("count", records.size())
-                        .put("executionTime", executionTimeMs)
-                        .put("statusCode", statusCode)
-                        .put("exception", throwable)
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "target call completed")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("count", records.size())
+                            .put("executionTime", executionTimeMs)
+                            .put("statusCode", statusCode)
+                            .put("exception", throwable)
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
     }
 
     public static void processMessageError(
-        ConsumerRecord<String, String> record,
+        ConsumerRecord<byte[], byte[]> record,
         Throwable exception,
         String batchRequestId,
         String targetRequestId
     ) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "process message failed")
-                .put(
-                    "err",
-                    new JSONObject()
-                        .put("errorMessages", getErrorMessages(exception))
-                        .put("class", exception.getClass())
-                        .put("stacktrace", exception.getStackTrace())
-                )
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("recordKey", record.key())
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "process message failed")
+                    .put(
+                        "err",
+                        new JSONObject()
+                            .put("errorMessages", getErrorMessages(exception))
+                            .put("class", exception.getClass())
+                            .put("stacktrace", exception.getStackTrace())
+                    )
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("recordKey", asString(record.key()))
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
 
         processMessageError.inc();
     }
 
     public static void deadLetterProduced(
-        ConsumerRecord<String, String> record,
+        ConsumerRecord<byte[], byte[]> record,
         String batchRequestId,
-        String targetRequestId
+        String targetRequestId,
+        long sendLatencyNanos
     ) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "dead letter produced")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("recordKey", record.key())
-                        .put("originalTopic", record.topic())
-                        .put("deadLetterTopic", Config.DEAD_LETTER_TOPIC)
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "dead letter produced")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("recordKey", asString(record.key()))
+                            .put("originalTopic", record.topic())
+                            .put("deadLetterTopic", Config.DEAD_LETTER_TOPIC)
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
 
         deadLetterProduced.inc();
+        deadLetterSendLatency.observe((double) sendLatencyNanos / 1_000_000_000);
     }
 
-    public static void consumerError(Throwable exception) {
+    public static void retryLogParked(ConsumerRecord<byte[], byte[]> record) {
         write(
-            new JSONObject()
-                .put("level", "error")
-                .put("message", "consumer stream was terminated due to unexpected error")
-                .put(
-                    "err",
-                    new JSONObject()
-                        .put("errorMessages", getErrorMessages(exception))
-                        .put("class", exception.getClass())
-                        .put("stacktrace", exception.getStackTrace())
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "record parked in retry log")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("recordKey", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                    )
         );
     }
 
-    public static void messageAcknowledge(
-        ConsumerRecord<String, String> record,
+    public static void retryLogResolved(ConsumerRecord<byte[], byte[]> record, int attempts) {
+        write(
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "record resolved from retry log")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("recordKey", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                            .put("attempts", attempts)
+                    )
+        );
+    }
+
+    public static void targetCircuitStateChanged(String route, CircuitBreaker.State state) {
+        write(
+            state == CircuitBreaker.State.OPEN ? Level.ERROR : Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "target circuit breaker " + state.name().toLowerCase().replace('_', '-'))
+                    .put("extra", new JSONObject().put("route", route))
+        );
+
+        targetCircuitOpen.labels(route).set(state == CircuitBreaker.State.OPEN ? 1 : 0);
+    }
+
+    public static void retryBudgetExhausted(
+        int attempt,
+        Integer lastStatusCode,
         String batchRequestId,
         String targetRequestId
     ) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "message acknowledged")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("key", record.key())
-                        .put("topic", record.topic())
-                        .put("partition", record.partition())
-                        .put("offset", record.offset())
-                        .put("batchRequestId", batchRequestId)
-                        .put("targetRequestId", targetRequestId)
-                )
+            Level.ERROR,
+            () ->
+                new JSONObject()
+                    .put("message", "retry denied by the retry budget")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("attempt", attempt)
+                            .put("lastStatusCode", lastStatusCode)
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
+
+        retryBudgetExhausted.inc();
     }
 
-    public static void commitSuccess(ConsumerRecord<String, String> record, String batchRequestId) {
+    public static void retryBudgetTokens(double tokens) {
+        retryBudgetTokens.set(tokens);
+    }
+
+    public static void targetRateLimitWaiting(String route, int waiting) {
+        targetRateLimitWaiting.labels(route).set(waiting);
+    }
+
+    public static void consumerError(Throwable exception) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "commit success")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("key", record.key())
-                        .put("topic", record.topic())
-                        .put("partition", record.partition())
-                        .put("offset", record.offset())
-                        .put("batchRequestId", batchRequestId)
-                )
+            Level.ERROR,
+            () ->
+                new JSONObject()
+                    .put("message", "consumer stream was terminated due to unexpected error")
+                    .put(
+                        "err",
+                        new JSONObject()
+                            .put("errorMessages", getErrorMessages(exception))
+                            .put("class", exception.getClass())
+                            .put("stacktrace", exception.getStackTrace())
+                    )
+        );
+    }
+
+    public static void messageAcknowledge(
+        ConsumerRecord<byte[], byte[]> record,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "message acknowledged")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("key", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                            .put("batchRequestId", batchRequestId)
+                            .put("targetRequestId", targetRequestId)
+                    )
         );
     }
 
-    public static void commitFailed(Throwable exception, ConsumerRecord<String, String> record, String batchRequestId) {
+    public static void redeliveredRecordSkipped(ConsumerRecord<byte[], byte[]> record, String batchRequestId) {
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "redelivered record skipped")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("key", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                            .put("batchRequestId", batchRequestId)
+                    )
+        );
+
+        redeliveredRecordsSkipped.inc();
+    }
+
+    public static void recordCoalesced(ConsumerRecord<byte[], byte[]> record) {
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "record superseded by a later record of its key")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("key", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                    )
+        );
+
+        recordsCoalesced.inc();
+    }
+
+    public static void commitSuccess(ConsumerRecord<byte[], byte[]> record, String batchRequestId) {
+        writeSampled(
+            record,
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "commit success")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("key", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                            .put("batchRequestId", batchRequestId)
+                    )
+        );
+    }
+
+    public static void commitFailed(Throwable exception, ConsumerRecord<byte[], byte[]> record, String batchRequestId) {
         write(
-            new JSONObject()
-                .put("level", "error")
-                .put("message", "commit failed")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("key", record.key())
-                        .put("topic", record.topic())
-                        .put("partition", record.partition())
-                        .put("offset", record.offset())
-                        .put("batchRequestId", batchRequestId)
-                )
-                .put(
-                    "err",
-                    new JSONObject()
-                        .put("errorMessages", getErrorMessages(exception))
-                        .put("class", exception.getClass())
-                        .put("stacktrace", exception.getStackTrace())
-                )
+            Level.ERROR,
+            () ->
+                new JSONObject()
+                    .put("message", "commit failed")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("key", asString(record.key()))
+                            .put("topic", record.topic())
+                            .put("partition", record.partition())
+                            .put("offset", record.offset())
+                            .put("batchRequestId", batchRequestId)
+                    )
+                    .put(
+                        "err",
+                        new JSONObject()
+                            .put("errorMessages", getErrorMessages(exception))
+                            .put("class", exception.getClass())
+                            .put("stacktrace", exception.getStackTrace())
+                    )
         );
     }
 
     public static void consumerCompleted() {
-        write(new JSONObject().put("level", "error").put("message", "consumer stream was completed"));
+        write(Level.ERROR, () -> new JSONObject().put("message", "consumer stream was completed"));
     }
 
     public static void shuttingDown() {
-        write(new JSONObject().put("level", "info").put("message", "shutting down"));
+        write(Level.INFO, () -> new JSONObject().put("message", "shutting down"));
     }
 
     public static void initializationError(Throwable exception) {
         write(
-            new JSONObject()
-                .put("level", "error")
-                .put("message", "Unexpected error while initializing")
-                .put(
-                    "err",
-                    new JSONObject()
-                        .put("errorMessages", getErrorMessages(exception))
-                        .put("class", exception.getClass())
-                )
+            Level.ERROR,
+            () ->
+                new JSONObject()
+                    .put("message", "Unexpected error while initializing")
+                    .put(
+                        "err",
+                        new JSONObject()
+                            .put("errorMessages", getErrorMessages(exception))
+                            .put("class", exception.getClass())
+                    )
         );
     }
 
     public static void started() {
-        write(new JSONObject().put("level", "info").put("message", "kafka-consumer-" + Config.GROUP_ID + " started"));
+        write(Level.INFO, () -> new JSONObject().put("message", "kafka-consumer-" + Config.GROUP_ID + " started"));
     }
 
     public static void assignedToPartition(Collection<ReceiverPartition> partitions) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "consumer was assigned to partitions")
-                .put(
-                    "extra",
-                    new JSONObject()
-                        .put("count", partitions.size())
-                        .put(
-                            "topicPartitions",
-                            partitions.stream().map(x -> x.topicPartition().toString()).collect(Collectors.joining(","))
-                        )
-                )
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "consumer was assigned to partitions")
+                    .put(
+                        "extra",
+                        new JSONObject()
+                            .put("count", partitions.size())
+                            .put(
+                                "topicPartitions",
+                                partitions
+                                    .stream()
+                                    .map(x -> x.topicPartition().toString())
+                                    .collect(Collectors.joining(","))
+                            )
+                    )
         );
         assignedPartitions.inc(partitions.size());
     }
 
     public static void revokedFromPartition(Collection<ReceiverPartition> partitions) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "consumer was revoked from partitions")
-                .put("extra", new JSONObject().put("count", partitions.size()))
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "consumer was revoked from partitions")
+                    .put("extra", new JSONObject().put("count", partitions.size()))
         );
 
         assignedPartitions.dec(partitions.size());
     }
 
     public static void serviceTerminated() {
-        write(
-            new JSONObject().put("level", "info").put("message", "kafka-consumer-" + Config.GROUP_ID + " terminated")
-        );
+        write(Level.INFO, () -> new JSONObject().put("message", "kafka-consumer-" + Config.GROUP_ID + " terminated"));
     }
 
     public static void produceError(String topic, String batchRequestId, String targetRequestId, Throwable exception) {
         write(
-            new JSONObject()
-                .put("level", "error")
-                .put("message", String.format("failed producing message to %s topic", topic))
-                .put(
-                    "extra",
-                    new JSONObject().put("batchRequestId", batchRequestId).put("targetRequestId", targetRequestId)
-                )
-                .put("err", new JSONObject().put("message", exception.getMessage()))
+            Level.ERROR,
+            () ->
+                new JSONObject()
+                    .put("message", String.format("failed producing message to %s topic", topic))
+                    .put(
+                        "extra",
+                        new JSONObject().put("batchRequestId", batchRequestId).put("targetRequestId", targetRequestId)
+                    )
+                    .put("err", new JSONObject().put("message", exception.getMessage()))
         );
 
         produceError.inc();
@@ -471,20 +695,25 @@ public class Monitor {
         String targetRequestId,
         String message
     ) {
-        var extra = new JSONObject();
-        extra.put("batchRequestId", batchRequestId);
-        extra.put("targetRequestId", targetRequestId);
-        if (responseBody.isPresent()) {
-            extra.put("response", responseBody.get());
-        }
-
-        var error = new JSONObject();
-        if (exception != null) {
-            error.put("message", exception.getMessage());
-            error.put("type", exception.getClass());
-        }
-
-        write(new JSONObject().put("level", "info").put("message", message).put("extra", extra).put("err", error));
+        write(
+            Level.INFO,
+            () -> {
+                var extra = new JSONObject();
+                extra.put("batchRequestId", batchRequestId);
+                extra.put("targetRequestId", targetRequestId);
+                if (responseBody.isPresent()) {
+                    extra.put("response", truncate(responseBody.get()));
+                }
+
+                var error = new JSONObject();
+                if (exception != null) {
+                    error.put("message", exception.getMessage());
+                    error.put("type", exception.getClass());
+                }
+
+                return new JSONObject().put("message", message).put("extra", extra).put("err", error);
+            }
+        );
     }
 
     public static void targetExecutionRetry(
@@ -521,17 +750,88 @@ public class Monitor {
         targetConnectionRetry.labels(String.valueOf(attempt)).inc();
     }
 
+    public static void deadLetterQueueDepth(int depth) {
+        deadLetterQueueDepth.set(depth);
+    }
+
+    public static void retryLogDepth(int depth) {
+        retryLogDepth.set(depth);
+    }
+
+    public static void pausedPartitions(int count) {
+        pausedPartitions.set(count);
+    }
+
+    public static void targetConcurrencyLimit(int limit) {
+        targetConcurrencyLimit.set(limit);
+    }
+
     public static void targetHealthcheckFailed(Exception exception) {
         write(
-            new JSONObject()
-                .put("level", "info")
-                .put("message", "target healthcheck failed")
-                .put("exceptionMessage", exception.getMessage())
+            Level.INFO,
+            () ->
+                new JSONObject()
+                    .put("message", "target healthcheck failed")
+                    .put("exceptionMessage", exception.getMessage())
         );
     }
 
-    private static void write(JSONObject log) {
-        System.out.println(log.toString());
+    // Before init() and after close() logs are written synchronously
+    // Only info and error are written, levels usually below info write everything and warnings only errors
+    private static Level parseLevel(String level) {
+        return switch (level.toLowerCase()) {
+            case "error", "warn", "warning", "fatal" -> Level.ERROR;
+            default -> Level.INFO;
+        };
+    }
+
+    private static void write(Level level, Supplier<JSONObject> log) {
+        if (level.compareTo(logLevel) < 0) {
+            return;
+        }
+
+        Supplier<JSONObject> leveled = () -> log.get().put("level", level.toString());
+        var writer = logWriter;
+        if (writer == null) {
+            System.out.println(leveled.get().toString());
+        } else if (!writer.offer(leveled)) {
+            if (level == Level.ERROR) {
+                System.out.println(leveled.get().toString());
+            } else {
+                logEventsDropped.inc();
+            }
+        }
+    }
+
+    // Sampling is decided per record, so a sampled record keeps all of its lifecycle events
+    private static void writeSampled(ConsumerRecord<byte[], byte[]> record, Level level, Supplier<JSONObject> log) {
+        if (sampleThreshold < SAMPLE_RANGE) {
+            var hash = (record.topic().hashCode() * 31 + record.partition()) * 31 + Long.hashCode(record.offset());
+            if (((hash * 0x9E3779B9) >>> 16) >= sampleThreshold) {
+                return;
+            }
+        }
+        write(level, log);
+    }
+
+    public static void close() {
+        var writer = logWriter;
+        if (writer != null) {
+            logWriter = null;
+            writer.close();
+        }
+    }
+
+    private static String truncate(String payload) {
+        var maxLength = Config.LOG_MAX_PAYLOAD_LENGTH;
+        if (payload == null || maxLength <= 0 || payload.length() <= maxLength) {
+            return payload;
+        }
+        return payload.substring(0, maxLength) + "...";
+    }
+
+    private static String asString(byte[] value) {
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
     }
 
     private static ArrayList<String> getErrorMessagesArray(Throwable exception, ArrayList<String> messages) {
@@ -8,6 +8,8 @@ import io.prometheus.client.exporter.HTTPServer;
 import io.prometheus.client.hotspot.DefaultExports;
 import java.io.IOException;
 import java.net.InetSocketAddress;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import target.TargetHealthcheck;
 
@@ -15,6 +17,7 @@ public class MonitoringServer {
 
     private boolean consumerAssigned;
     private boolean consumerDisposed;
+    private final Set<String> openCircuits = ConcurrentHashMap.newKeySet();
     private HttpServer server;
 
     public MonitoringServer() {}
@@ -47,6 +50,14 @@ public class MonitoringServer {
         consumerDisposed = true;
     }
 
+    public void circuitOpened(String route) {
+        openCircuits.add(route);
+    }
+
+    public void circuitClosed(String route) {
+        openCircuits.remove(route);
+    }
+
     public void close() {
         server.stop(0);
     }
@@ -70,6 +81,11 @@ public class MonitoringServer {
                 return;
             }
 
+            if (!openCircuits.isEmpty()) {
+                writeResponse(500, exchange);
+                return;
+            }
+
             writeResponse(200, exchange);
         });
     }
@@ -0,0 +1,62 @@
+package target;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import reactor.kafka.receiver.ReceiverRecord;
+
+public class BatchRequestBody extends RequestBody {
+
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final List<ReceiverRecord<byte[], byte[]>> records;
+    private final PayloadExtractor picker;
+
+    // Only the picked field of the extractor is used, BODY_HEADERS_PATHS don't apply to batches
+    public BatchRequestBody(List<ReceiverRecord<byte[], byte[]>> records, PayloadExtractor extractor) {
+        this.records = records;
+        this.picker = extractor != null && extractor.picks() ? extractor : null;
+    }
+
+    @Override
+    public MediaType contentType() {
+        return JSON;
+    }
+
+    @Override
+    public long contentLength() {
+        if (picker != null) {
+            return -1;
+        }
+        long length = 2 + 2L * (records.size() - 1);
+        for (var record : records) {
+            length += record.value() != null ? record.value().length : NULL.length;
+        }
+        return length;
+    }
+
+    @Override
+    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+        sink.writeUtf8("[");
+        for (int i = 0; i < records.size(); i++) {
+            if (i > 0) {
+                sink.writeUtf8(picker != null ? "," : ", ");
+            }
+            // Null values (tombstones) are written as null, like their JSON array string used to be
+            var value = records.get(i).value();
+            if (value == null) {
+                sink.write(NULL);
+            } else if (picker != null) {
+                sink.writeAll(picker.pick(value));
+            } else {
+                sink.write(value);
+            }
+        }
+        sink.writeUtf8("]");
+    }
+}
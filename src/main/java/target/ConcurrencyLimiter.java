@@ -0,0 +1,121 @@
+package target;
+
+import configuration.Config;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import monitoring.Monitor;
+
+// AIMD limit on concurrent target calls: every successful attempt grows the limit by about one per window of
+// `limit` attempts, a failed or slow attempt shrinks it by BACKOFF_RATIO, at most once per round trip
+public class ConcurrencyLimiter {
+
+    private static final double BACKOFF_RATIO = 0.9;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+
+    private double limit;
+    private int inFlight;
+    private long lastDecrease;
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, long latencyThresholdMs) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMs * 1_000_000;
+        this.limit = Math.min(Math.max(initialLimit, minLimit), maxLimit);
+        this.lastDecrease = System.nanoTime();
+        Monitor.targetConcurrencyLimit((int) limit);
+    }
+
+    public static ConcurrencyLimiter create() {
+        if (!Config.TARGET_ADAPTIVE_CONCURRENCY) {
+            return null;
+        }
+        return new ConcurrencyLimiter(
+            Config.TARGET_CONCURRENCY_LIMITS.get(0),
+            Config.TARGET_CONCURRENCY_LIMITS.get(1),
+            Config.TARGET_CONCURRENCY_LIMITS.get(2),
+            Config.TARGET_CONCURRENCY_LATENCY_THRESHOLD_MS
+        );
+    }
+
+    // The permit is held until the call completes, retries included
+    public <T> CompletableFuture<T> execute(Supplier<CompletableFuture<T>> call) {
+        var result = new CompletableFuture<T>();
+        Runnable start = () -> {
+            CompletableFuture<T> future;
+            try {
+                future = call.get();
+            } catch (Throwable e) {
+                future = CompletableFuture.failedFuture(e);
+            }
+            future.whenComplete((value, throwable) -> {
+                release();
+                if (throwable != null) {
+                    result.completeExceptionally(throwable);
+                } else {
+                    result.complete(value);
+                }
+            });
+        };
+
+        synchronized (this) {
+            if (inFlight >= (int) limit) {
+                waiting.addLast(start);
+                return result;
+            }
+            inFlight++;
+        }
+        start.run();
+        return result;
+    }
+
+    public void onSample(long attemptStartNanos, boolean dropped) {
+        var now = System.nanoTime();
+        int previous;
+        int current;
+        synchronized (this) {
+            previous = (int) limit;
+            if (dropped || (latencyThresholdNanos > 0 && now - attemptStartNanos > latencyThresholdNanos)) {
+                // Attempts started before the last decrease already saw the previous limit
+                if (attemptStartNanos - lastDecrease > 0) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    lastDecrease = now;
+                }
+            } else if (inFlight * 2 >= limit) {
+                // Only grow when the limit is actually in use
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            current = (int) limit;
+        }
+
+        if (current != previous) {
+            Monitor.targetConcurrencyLimit(current);
+            if (current > previous) {
+                startWaiting();
+            }
+        }
+    }
+
+    private void release() {
+        synchronized (this) {
+            inFlight--;
+        }
+        startWaiting();
+    }
+
+    private void startWaiting() {
+        var starts = new ArrayList<Runnable>();
+        synchronized (this) {
+            while (inFlight < (int) limit && !waiting.isEmpty()) {
+                inFlight++;
+                starts.add(waiting.pollFirst());
+            }
+        }
+        starts.forEach(Runnable::run);
+    }
+}
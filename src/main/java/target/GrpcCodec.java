@@ -0,0 +1,115 @@
+package target;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.apache.kafka.common.header.Header;
+import reactor.kafka.receiver.ReceiverRecord;
+
+// Encodes the messages of src/main/proto/target.proto and frames them as gRPC length-prefixed messages
+final class GrpcCodec implements StreamCodec {
+
+    static final MediaType GRPC = MediaType.get("application/grpc");
+    static final Headers HEADERS = Headers.of("te", "trailers");
+
+    @Override
+    public MediaType contentType() {
+        return GRPC;
+    }
+
+    @Override
+    public Headers headers() {
+        return HEADERS;
+    }
+
+    @Override
+    public void write(BufferedSink sink, ReceiverRecord<byte[], byte[]> record, String originalTopic)
+        throws IOException {
+        var bytes = new ByteArrayOutputStream();
+        var out = CodedOutputStream.newInstance(bytes);
+        out.writeString(1, record.topic());
+        out.writeInt32(2, record.partition());
+        out.writeInt64(3, record.offset());
+        out.writeInt64(4, record.timestamp());
+        out.writeString(5, originalTopic);
+        if (record.key() != null) {
+            out.writeByteArray(6, record.key());
+        }
+        if (record.value() != null) {
+            out.writeByteArray(7, record.value());
+        }
+        for (Header header : record.headers()) {
+            var value = header.value() != null ? header.value() : new byte[0];
+            out.writeTag(8, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+            out.writeUInt32NoTag(
+                CodedOutputStream.computeStringSize(1, header.key()) + CodedOutputStream.computeByteArraySize(2, value)
+            );
+            out.writeString(1, header.key());
+            out.writeByteArray(2, value);
+        }
+        out.flush();
+
+        // Uncompressed flag followed by the big-endian message length
+        sink.writeByte(0);
+        sink.writeInt(bytes.size());
+        sink.write(bytes.toByteArray());
+    }
+
+    @Override
+    public Ack read(BufferedSource source) throws IOException {
+        if (source.exhausted()) {
+            return null;
+        }
+        if (source.readByte() != 0) {
+            throw new IOException("compressed gRPC messages are not supported");
+        }
+        var in = CodedInputStream.newInstance(source.readByteArray(source.readInt() & 0xFFFFFFFFL));
+        String topic = "";
+        int partition = 0;
+        long offset = 0;
+        int code = 0;
+        String message = "";
+        for (int tag = in.readTag(); tag != 0; tag = in.readTag()) {
+            switch (WireFormat.getTagFieldNumber(tag)) {
+                case 1 -> topic = in.readString();
+                case 2 -> partition = in.readInt32();
+                case 3 -> offset = in.readInt64();
+                case 4 -> code = in.readInt32();
+                case 5 -> message = in.readString();
+                default -> in.skipField(tag);
+            }
+        }
+        return new Ack(topic, partition, offset, toHttpStatus(code), message);
+    }
+
+    // The HTTP status a gRPC status code stands for, so the status code settings apply to gRPC targets as well
+    static int toHttpStatus(int grpcStatus) {
+        return switch (grpcStatus) {
+            case 0 -> 200;
+            case 1 -> 499;
+            case 3, 9, 11 -> 400;
+            case 4 -> 504;
+            case 5 -> 404;
+            case 6, 10 -> 409;
+            case 7 -> 403;
+            case 8 -> 429;
+            case 12 -> 501;
+            case 14 -> 503;
+            case 16 -> 401;
+            default -> 500;
+        };
+    }
+
+    // grpc-message is percent-encoded, a literal '+' is not a space
+    static String decodeMessage(String grpcMessage) {
+        return grpcMessage == null ? "" : URLDecoder.decode(grpcMessage.replace("+", "%2B"), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,45 @@
+package target;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import okhttp3.Interceptor;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+
+// gRPC calls answer 200 and carry their outcome in the grpc-status trailer (or header, for trailers-only
+// responses). The response is buffered and its code replaced by the matching HTTP status, so the retry
+// policy, the status classifier and the monitoring handle gRPC calls exactly like HTTP calls. Streams
+// carry a status per record in their acks and are left alone
+class GrpcStatusInterceptor implements Interceptor {
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        var response = chain.proceed(chain.request());
+        if (response.code() != 200 || chain.request().body() == null || chain.request().body().isDuplex()) {
+            return response;
+        }
+
+        try (response) {
+            var body = response.body().bytes();
+            var status = response.header("grpc-status");
+            var message = response.header("grpc-message");
+            if (status == null) {
+                status = response.trailers().get("grpc-status");
+                message = response.trailers().get("grpc-message");
+            }
+            if (status == null) {
+                throw new IOException("gRPC response without grpc-status");
+            }
+
+            // Failed calls expose grpc-message as their body, that's what ends up in the dead letter headers
+            var code = GrpcCodec.toHttpStatus(Integer.parseInt(status));
+            var decodedMessage = GrpcCodec.decodeMessage(message);
+            return response
+                .newBuilder()
+                .code(code)
+                .message(decodedMessage)
+                .body(ResponseBody.create(code == 200 ? body : decodedMessage.getBytes(StandardCharsets.UTF_8), null))
+                .build();
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package target;
+
+import configuration.Config;
+import configuration.TopicsRoutes;
+import java.io.IOException;
+import java.util.List;
+import kafka.DeadLetterProducer;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import reactor.kafka.receiver.ReceiverRecord;
+
+// Calls the dafka.consumer.v1.Target service of src/main/proto/target.proto, speaking the gRPC protocol over
+// OkHttp's HTTP/2 client. Single records are unary Consume calls and batches client-streaming ConsumeBatch
+// calls, both going through the same retry policy and dead lettering as HttpTarget. With TARGET_STREAMS
+// single records are sent on long-lived ConsumeStream calls instead, one per lane
+public class GrpcTarget extends HttpTarget {
+
+    private static final String SERVICE = "dafka.consumer.v1.Target";
+
+    private final HttpUrl consumeUrl;
+    private final HttpUrl consumeBatchUrl;
+    private final HttpUrl consumeStreamUrl;
+    private final GrpcCodec codec;
+
+    public GrpcTarget(TopicsRoutes topicsRoutes, DeadLetterProducer deadLetterProducer) {
+        this(topicsRoutes, deadLetterProducer, new GrpcCodec());
+    }
+
+    private GrpcTarget(TopicsRoutes topicsRoutes, DeadLetterProducer deadLetterProducer, GrpcCodec codec) {
+        super(topicsRoutes, deadLetterProducer, createClient(), codec);
+        this.codec = codec;
+        var baseUrl = HttpUrl.get(Config.TARGET_BASE_URL);
+        this.consumeUrl = baseUrl.newBuilder().addPathSegments(SERVICE + "/Consume").build();
+        this.consumeBatchUrl = baseUrl.newBuilder().addPathSegments(SERVICE + "/ConsumeBatch").build();
+        this.consumeStreamUrl = baseUrl.newBuilder().addPathSegments(SERVICE + "/ConsumeStream").build();
+    }
+
+    private static OkHttpClient createClient() {
+        var protocols = HttpUrl.get(Config.TARGET_BASE_URL).isHttps()
+            ? List.of(Protocol.HTTP_2, Protocol.HTTP_1_1)
+            : List.of(Protocol.H2_PRIOR_KNOWLEDGE);
+        return HttpClientFactory
+            .create()
+            .newBuilder()
+            .protocols(protocols)
+            .addInterceptor(new GrpcStatusInterceptor())
+            .build();
+    }
+
+    @Override
+    protected HttpUrl getStreamUrl(ReceiverRecord<byte[], byte[]> record) {
+        return consumeStreamUrl;
+    }
+
+    @Override
+    protected Request createRequest(final ReceiverRecord<byte[], byte[]> record) {
+        return createRequest(consumeUrl, List.of(record));
+    }
+
+    @Override
+    protected Request createRequest(List<ReceiverRecord<byte[], byte[]>> records) {
+        return createRequest(consumeBatchUrl, records);
+    }
+
+    private Request createRequest(HttpUrl url, List<ReceiverRecord<byte[], byte[]>> records) {
+        return new Request.Builder()
+            .url(url)
+            .headers(codec.headers())
+            .header("grpc-timeout", Config.TARGET_TIMEOUT_MS + "m")
+            .post(
+                new RequestBody() {
+                    @Override
+                    public MediaType contentType() {
+                        return codec.contentType();
+                    }
+
+                    @Override
+                    public void writeTo(@NotNull BufferedSink sink) throws IOException {
+                        for (var record : records) {
+                            codec.write(sink, record, getOriginalTopic(record));
+                        }
+                    }
+                }
+            )
+            .build();
+    }
+}
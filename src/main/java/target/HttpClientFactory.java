@@ -0,0 +1,73 @@
+package target;
+
+import configuration.Config;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
+
+public class HttpClientFactory {
+
+    public static OkHttpClient create() {
+        var httpTimeout = Duration.ofMillis(Config.TARGET_TIMEOUT_MS);
+
+        return new OkHttpClient.Builder()
+            .callTimeout(httpTimeout)
+            .readTimeout(httpTimeout)
+            .writeTimeout(httpTimeout)
+            .connectTimeout(httpTimeout)
+            .protocols(getProtocols())
+            .dispatcher(createDispatcher())
+            .connectionPool(
+                new ConnectionPool(
+                    Config.CONNECTION_POOL_MAX_IDLE_CONNECTIONS,
+                    Config.CONNECTION_POOL_KEEP_ALIVE_DURATION_MS,
+                    TimeUnit.MILLISECONDS
+                )
+            )
+            .build();
+    }
+
+    private static List<Protocol> getProtocols() {
+        switch (Config.TARGET_HTTP_PROTOCOL) {
+            case "h2c" -> {
+                // Plaintext HTTP/2 without an upgrade round trip, the target must speak HTTP/2 on this port
+                return List.of(Protocol.H2_PRIOR_KNOWLEDGE);
+            }
+            case "h2" -> {
+                // Negotiated through ALPN on https targets, plaintext targets stay on HTTP/1.1
+                return List.of(Protocol.HTTP_2, Protocol.HTTP_1_1);
+            }
+            default -> {
+                return List.of(Protocol.HTTP_1_1);
+            }
+        }
+    }
+
+    // Over HTTP/2 every in-flight call to the target is a stream on a shared connection, so the per host
+    // dispatcher limit is what bounds the concurrent streams. With adaptive concurrency the limiter is the
+    // bound, the dispatcher only needs to allow its maximum
+    private static Dispatcher createDispatcher() {
+        var dispatcher = new Dispatcher();
+        var maxRequestsPerHost = Config.TARGET_MAX_CONCURRENT_STREAMS > 0
+            ? Config.TARGET_MAX_CONCURRENT_STREAMS
+            : Config.TARGET_ADAPTIVE_CONCURRENCY ? Config.TARGET_CONCURRENCY_LIMITS.get(2) : 0;
+        if (maxRequestsPerHost > 0) {
+            dispatcher.setMaxRequests(Math.max(dispatcher.getMaxRequests(), maxRequestsPerHost));
+            dispatcher.setMaxRequestsPerHost(maxRequestsPerHost);
+        }
+
+        // Long-lived target streams hold on to their dispatcher slots, on top of the calls above
+        var streams = Config.TARGET_STREAMS * (Config.TARGET_TYPE.equals("grpc") ? 1 : routeCount());
+        dispatcher.setMaxRequests(dispatcher.getMaxRequests() + streams);
+        dispatcher.setMaxRequestsPerHost(dispatcher.getMaxRequestsPerHost() + streams);
+        return dispatcher;
+    }
+
+    private static int routeCount() {
+        return Config.TOPICS_ROUTES == null ? 0 : (int) Config.TOPICS_ROUTES.values().stream().distinct().count();
+    }
+}
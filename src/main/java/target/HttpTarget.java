@@ -1,79 +1,104 @@
 package target;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonElement;
 import configuration.Config;
 import configuration.TopicsRoutes;
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
-import kafka.Producer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import kafka.DeadLetterProducer;
 import monitoring.Monitor;
 import okhttp3.*;
-import org.json.JSONObject;
+import reactor.core.publisher.Mono;
 import reactor.kafka.receiver.ReceiverRecord;
 
 public class HttpTarget implements ITarget {
 
     private final TopicsRoutes topicsRoutes;
-    private static final Duration httpTimeout = Duration.ofMillis(Config.TARGET_TIMEOUT_MS);
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-        .callTimeout(httpTimeout)
-        .readTimeout(httpTimeout)
-        .writeTimeout(httpTimeout)
-        .connectTimeout(httpTimeout)
-        .connectionPool(
-            new ConnectionPool(
-                Config.CONNECTION_POOL_MAX_IDLE_CONNECTIONS,
-                Config.CONNECTION_POOL_KEEP_ALIVE_DURATION_MS,
-                TimeUnit.MILLISECONDS
-            )
-        )
-        .build();
-
-    private final Producer producer;
-
-    public HttpTarget(TopicsRoutes topicsRoutes, Producer producer) {
+    private static final MediaType JSON = MediaType.get("application/json; charset=utf-8");
+    private final OkHttpClient client;
+
+    private final DeadLetterProducer deadLetterProducer;
+    private final PayloadExtractor extractor;
+    private final TargetRetryPolicy retryPolicy;
+    private final ConcurrencyLimiter limiter;
+    private final RouteRateLimiters rateLimiters;
+
+    private final StreamCodec streamCodec;
+    private final OkHttpClient streamClient;
+    private final Map<HttpUrl, AtomicReferenceArray<TargetStream>> streams;
+
+    public HttpTarget(TopicsRoutes topicsRoutes, DeadLetterProducer deadLetterProducer) {
+        this(topicsRoutes, deadLetterProducer, HttpClientFactory.create(), new NdjsonCodec());
+    }
+
+    protected HttpTarget(
+        TopicsRoutes topicsRoutes,
+        DeadLetterProducer deadLetterProducer,
+        OkHttpClient client,
+        StreamCodec streamCodec
+    ) {
         this.topicsRoutes = topicsRoutes;
-        this.producer = producer;
+        this.client = client;
+        this.deadLetterProducer = deadLetterProducer;
+        this.extractor = PayloadExtractor.create();
+        this.limiter = ConcurrencyLimiter.create();
+        this.rateLimiters = RouteRateLimiters.create();
+        this.retryPolicy = new TargetRetryPolicy(limiter, RetryBudget.create(), rateLimiters);
+
+        // Streams stay open and idle between records, only the per record timeout applies to them
+        this.streamCodec = streamCodec;
+        this.streamClient = client.newBuilder().callTimeout(Duration.ZERO).readTimeout(Duration.ZERO).build();
+        this.streams = Config.TARGET_STREAMS > 0 ? new ConcurrentHashMap<>() : null;
     }
 
     public CompletableFuture<Object> call(
-        final ReceiverRecord<String, String> record,
+        final ReceiverRecord<byte[], byte[]> record,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        if (streams != null) {
+            return stream(record, batchRequestId, targetRequestId);
+        }
+        return send(record, batchRequestId, targetRequestId);
+    }
+
+    private CompletableFuture<Object> send(
+        final ReceiverRecord<byte[], byte[]> record,
         String batchRequestId,
         String targetRequestId
     ) {
         Monitor.processMessageStarted(record, batchRequestId, targetRequestId);
         try {
-            return TargetRetryPolicy
-                .create(batchRequestId, targetRequestId)
-                .compose(client.newCall(createRequest(record)))
-                .executeAsync()
-                .handleAsync((response, throwable) ->
-                    onExecutionSuccess(
-                        response,
-                        throwable,
-                        record,
-                        (new Date()).getTime(),
-                        batchRequestId,
-                        targetRequestId
-                    )
-                );
+            return execute(topicsRoutes.getUrl(record.topic()), createRequest(record), batchRequestId, targetRequestId)
+                .handleAsync(
+                    (response, throwable) ->
+                        onExecutionSuccess(
+                            response,
+                            throwable,
+                            record,
+                            (new Date()).getTime(),
+                            batchRequestId,
+                            targetRequestId
+                        ),
+                    TargetExecutors.executor()
+                )
+                .thenCompose(Function.identity());
         } catch (Throwable throwable) {
             Monitor.processMessageError(record, throwable, batchRequestId, targetRequestId);
             if (Config.DEAD_LETTER_TOPIC != null) {
-                Monitor.deadLetterProduced(record, batchRequestId, targetRequestId);
-                return producer.produce(
-                    Config.DEAD_LETTER_TOPIC,
+                return produceDeadLetter(
                     record,
-                    Optional.empty(),
-                    Optional.of(throwable),
+                    new TargetException(null, null, throwable),
                     batchRequestId,
                     targetRequestId
                 );
@@ -84,100 +109,180 @@ public class HttpTarget implements ITarget {
 
     @Override
     public CompletableFuture<Object> call(
-        List<ReceiverRecord<String, String>> records,
+        List<ReceiverRecord<byte[], byte[]>> records,
         String batchRequestId,
         String targetRequestId
     ) {
         Monitor.targetCallStarted(records, targetRequestId, batchRequestId);
         var executionStart = new Date().getTime();
-        var gson = new Gson();
-        var body = !Config.RECORD_PICK_FIELD.isEmpty()
-            ? gson.toJson(
-                (
-                    records
-                        .stream()
-                        .map(r -> gson.fromJson(r.value(), JsonElement.class).getAsJsonObject())
-                        .map(x -> x.get(Config.RECORD_PICK_FIELD))
-                        .collect(Collectors.toList())
-                )
-            )
-            : records.stream().map(ReceiverRecord::value).toList().toString();
 
         try {
-            var last = records.get(records.size() - 1);
-            var request = new Request.Builder()
-                .url(Config.TARGET_BASE_URL + this.topicsRoutes.getRoute(last.topic()))
-                .post(RequestBody.create(body, MediaType.get("application/json; charset=utf-8")))
-                .build();
-
-            return TargetRetryPolicy
-                .create(batchRequestId, targetRequestId)
-                .compose(client.newCall(request))
-                .executeAsync()
-                .handleAsync((response, throwable) -> {
-                    try {
-                        if (
-                            Integer
-                                .toString(response.code())
-                                .matches(Config.PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH) ||
-                            throwable != null
-                        ) {
-                            assert response.body() != null;
-                            return new TargetException(response.code(), response.body().string(), throwable);
-                        } else {
-                            return null;
+            var route = topicsRoutes.getUrl(records.get(records.size() - 1).topic());
+            return execute(route, createRequest(records), batchRequestId, targetRequestId)
+                .handleAsync(
+                    (response, throwable) -> {
+                        try (response) {
+                            if (throwable != null) {
+                                return new TargetException(null, null, throwable);
+                            }
+                            if (Config.STATUS_CLASSIFIER.isDeadLetter(response.code())) {
+                                assert response.body() != null;
+                                return new TargetException(response.code(), response.body().string(), null);
+                            } else {
+                                return null;
+                            }
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        } finally {
+                            Monitor.targetCallCompleted(
+                                records,
+                                targetRequestId,
+                                batchRequestId,
+                                executionStart,
+                                response != null ? response.code() : -1,
+                                throwable
+                            );
                         }
-                    } catch (IOException e) {
-                        throw new RuntimeException(e);
-                    } finally {
-                        Monitor.targetCallCompleted(
-                            records,
-                            targetRequestId,
-                            batchRequestId,
-                            executionStart,
-                            response.code(),
-                            throwable
-                        );
-                    }
-                });
+                    },
+                    TargetExecutors.executor()
+                );
         } catch (Throwable throwable) {
             Monitor.targetCallCompleted(records, targetRequestId, batchRequestId, executionStart, -1, throwable);
             return CompletableFuture.failedFuture(throwable);
         }
     }
 
-    private Request createRequest(final ReceiverRecord<String, String> record) {
-        var gson = new Gson();
+    private CompletableFuture<Object> stream(
+        final ReceiverRecord<byte[], byte[]> record,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        Monitor.processMessageStarted(record, batchRequestId, targetRequestId);
+        var executionStart = new Date().getTime();
+        try {
+            var sent = rateLimiters == null
+                ? getStream(record).send(record, getOriginalTopic(record))
+                : rateLimiters
+                    .acquire(topicsRoutes.getUrl(record.topic()))
+                    .thenCompose(__ -> getStream(record).send(record, getOriginalTopic(record)));
+            return sent
+                .handleAsync(
+                    (ack, throwable) -> onAck(ack, throwable, record, executionStart, batchRequestId, targetRequestId),
+                    TargetExecutors.executor()
+                )
+                .thenCompose(Function.identity());
+        } catch (Throwable throwable) {
+            Monitor.processMessageCompleted(record, batchRequestId, targetRequestId, executionStart, -1, throwable);
+            return send(record, batchRequestId, targetRequestId);
+        }
+    }
+
+    // Records that failed on the stream or were acknowledged with a retried status are sent again on their
+    // own request, which goes through the retry policy
+    private CompletableFuture<Object> onAck(
+        StreamCodec.Ack ack,
+        Throwable throwable,
+        ReceiverRecord<byte[], byte[]> record,
+        long executionStart,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        if (throwable != null) {
+            Monitor.processMessageCompleted(record, batchRequestId, targetRequestId, executionStart, -1, throwable);
+            return send(record, batchRequestId, targetRequestId);
+        }
+
+        Monitor.processMessageCompleted(record, batchRequestId, targetRequestId, executionStart, ack.status(), null);
+        if (Config.STATUS_CLASSIFIER.isConnectionRetry(ack.status()) || Config.STATUS_CLASSIFIER.isRetry(ack.status())) {
+            return send(record, batchRequestId, targetRequestId);
+        }
+        if (Config.STATUS_CLASSIFIER.isDeadLetter(ack.status()) && Config.DEAD_LETTER_TOPIC != null) {
+            return produceDeadLetter(
+                record,
+                new TargetException(ack.status(), ack.message(), null),
+                batchRequestId,
+                targetRequestId
+            );
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    // Records of the same key always share a stream, like the stream processing lanes
+    private TargetStream getStream(ReceiverRecord<byte[], byte[]> record) {
+        var url = getStreamUrl(record);
+        var lanes = streams.computeIfAbsent(url, __ -> new AtomicReferenceArray<>(Config.TARGET_STREAMS));
+        var lane = Math.floorMod(
+            record.key() == null ? record.partition() : Arrays.hashCode(record.key()),
+            lanes.length()
+        );
+        var stream = lanes.get(lane);
+        if (stream == null || stream.isClosed()) {
+            synchronized (lanes) {
+                stream = lanes.get(lane);
+                if (stream == null || stream.isClosed()) {
+                    stream = new TargetStream(streamClient, url, streamCodec);
+                    lanes.set(lane, stream);
+                }
+            }
+        }
+        return stream;
+    }
+
+    protected HttpUrl getStreamUrl(ReceiverRecord<byte[], byte[]> record) {
+        return this.topicsRoutes.getUrl(record.topic());
+    }
+
+    public void onCircuitStateChange(BiConsumer<HttpUrl, Boolean> listener) {
+        retryPolicy.onCircuitStateChange(listener);
+    }
+
+    public void onCircuitClose(Consumer<HttpUrl> listener) {
+        retryPolicy.onCircuitClose(listener);
+    }
+
+    public void onRateLimitThrottleChange(BiConsumer<HttpUrl, Boolean> listener) {
+        if (rateLimiters != null) {
+            rateLimiters.onThrottleChange(listener);
+        }
+    }
 
-        var body = !Config.RECORD_PICK_FIELD.isEmpty()
-            ? gson.toJson(
-                (gson.fromJson(record.value(), JsonElement.class).getAsJsonObject().get(Config.RECORD_PICK_FIELD))
-            )
-            : record.value();
+    private CompletableFuture<Response> execute(
+        HttpUrl route,
+        Request request,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        if (limiter == null) {
+            return retryPolicy.execute(route, client, request, batchRequestId, targetRequestId);
+        }
+        return limiter.execute(() -> retryPolicy.execute(route, client, request, batchRequestId, targetRequestId));
+    }
+
+    protected Request createRequest(List<ReceiverRecord<byte[], byte[]>> records) {
+        var last = records.get(records.size() - 1);
+        return new Request.Builder()
+            .url(this.topicsRoutes.getUrl(last.topic()))
+            .post(new BatchRequestBody(records, extractor))
+            .build();
+    }
+
+    protected Request createRequest(final ReceiverRecord<byte[], byte[]> record) throws MalformedRecordException {
+        var payload = extractor != null ? extractor.extract(record.value()) : null;
+        var body = payload != null && payload.picked() != null
+            ? RequestBody.create(payload.picked().readByteString(), JSON)
+            : RequestBody.create(record.value(), JSON);
 
         var requestBuilder = new Request.Builder()
-            .url(Config.TARGET_BASE_URL + this.topicsRoutes.getRoute(record.topic()))
-            .post(RequestBody.create(body, MediaType.get("application/json; charset=utf-8")))
+            .url(this.topicsRoutes.getUrl(record.topic()))
+            .post(body)
             .header("x-record-topic", record.topic())
             .header("x-record-partition", String.valueOf(record.partition()))
             .header("x-record-offset", String.valueOf(record.offset()))
             .header("x-record-timestamp", String.valueOf(record.timestamp()))
             .header("x-record-original-topic", this.getOriginalTopic(record));
 
-        if (Config.BODY_HEADERS_PATHS != null) {
-            var jsonObject = new JSONObject(record.value());
-            Config.BODY_HEADERS_PATHS.forEach(key -> {
-                if (jsonObject.has(key)) {
-                    JSONObject headersObject = jsonObject.getJSONObject(key);
-
-                    for (String headerKey : headersObject.keySet()) {
-                        if (!headersObject.isNull(headerKey)) {
-                            String value = headersObject.getString(headerKey);
-                            requestBuilder.header(headerKey, value);
-                        }
-                    }
-                }
-            });
+        if (payload != null) {
+            payload.headers().forEach(requestBuilder::header);
         }
 
         record
@@ -192,7 +297,7 @@ public class HttpTarget implements ITarget {
     private CompletableFuture<Object> onExecutionSuccess(
         Response response,
         Throwable throwable,
-        ReceiverRecord<String, String> record,
+        ReceiverRecord<byte[], byte[]> record,
         long executionStart,
         String batchRequestId,
         String targetRequestId
@@ -200,31 +305,32 @@ public class HttpTarget implements ITarget {
         try (Response r = response) {
             if (throwable != null) {
                 Monitor.processMessageCompleted(record, batchRequestId, targetRequestId, executionStart, -1, throwable);
+                // With a retry log, records still failing once the retry policy gives up are handed back to be
+                // parked instead of dead lettered
+                var failure = new TargetException(null, null, throwable);
+                if (Config.RETRY_LOG_PATH != null && failure.isRetryable()) {
+                    return CompletableFuture.completedFuture(failure);
+                }
                 if (Config.DEAD_LETTER_TOPIC != null) {
-                    Monitor.deadLetterProduced(record, batchRequestId, targetRequestId);
-                    return producer.produce(
-                        Config.DEAD_LETTER_TOPIC,
-                        record,
-                        Optional.empty(),
-                        Optional.of(throwable),
-                        batchRequestId,
-                        targetRequestId
-                    );
+                    return produceDeadLetter(record, failure, batchRequestId, targetRequestId);
                 }
-                return CompletableFuture.failedFuture(throwable);
+                // Without a dead letter topic the record is given up on and acknowledged, failing the future would
+                // take the consumer down
+                return CompletableFuture.completedFuture(null);
             }
             Monitor.processMessageCompleted(record, batchRequestId, targetRequestId, executionStart, r.code(), null);
 
             if (
-                Integer.toString(r.code()).matches(Config.PRODUCE_TO_DEAD_LETTER_TOPIC_WHEN_STATUS_CODE_MATCH) &&
-                Config.DEAD_LETTER_TOPIC != null
+                Config.RETRY_LOG_PATH != null &&
+                (Config.STATUS_CLASSIFIER.isConnectionRetry(r.code()) || Config.STATUS_CLASSIFIER.isRetry(r.code()))
             ) {
-                Monitor.deadLetterProduced(record, batchRequestId, targetRequestId);
-                return producer.produce(
-                    Config.DEAD_LETTER_TOPIC,
+                return CompletableFuture.completedFuture(new TargetException(r.code(), readBody(r), null));
+            }
+
+            if (Config.STATUS_CLASSIFIER.isDeadLetter(r.code()) && Config.DEAD_LETTER_TOPIC != null) {
+                return produceDeadLetter(
                     record,
-                    Optional.of(r),
-                    Optional.empty(),
+                    new TargetException(r.code(), readBody(r), null),
                     batchRequestId,
                     targetRequestId
                 );
@@ -233,4 +339,24 @@ public class HttpTarget implements ITarget {
             return CompletableFuture.completedFuture(null);
         }
     }
+
+    private CompletableFuture<Object> produceDeadLetter(
+        ReceiverRecord<byte[], byte[]> record,
+        TargetException reason,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return deadLetterProducer
+            .produce(List.of(record), reason, batchRequestId, targetRequestId)
+            .then(Mono.<Object>empty())
+            .toFuture();
+    }
+
+    private static String readBody(Response response) {
+        try {
+            return response.body().string();
+        } catch (IOException e) {
+            return "";
+        }
+    }
 }
@@ -9,18 +9,18 @@ import reactor.kafka.receiver.ReceiverRecord;
 
 public interface ITarget {
     CompletableFuture<Object> call(
-        ReceiverRecord<String, String> record,
+        ReceiverRecord<byte[], byte[]> record,
         String batchRequestId,
         String targetRequestId
     );
 
     CompletableFuture<Object> call(
-        List<ReceiverRecord<String, String>> records,
+        List<ReceiverRecord<byte[], byte[]>> records,
         String batchRequestId,
         String targetRequestId
     );
 
-    default String getOriginalTopic(ReceiverRecord<String, String> record) {
+    default String getOriginalTopic(ReceiverRecord<byte[], byte[]> record) {
         Iterator<Header> headers = record.headers().headers(Config.ORIGINAL_TOPIC).iterator();
         if (headers.hasNext()) {
             return new String(headers.next().value());
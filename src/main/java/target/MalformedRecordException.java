@@ -0,0 +1,11 @@
+package target;
+
+import java.net.ProtocolException;
+
+public class MalformedRecordException extends ProtocolException {
+
+    public MalformedRecordException(Throwable cause) {
+        super("failed to read record value: " + cause.getMessage());
+        initCause(cause);
+    }
+}
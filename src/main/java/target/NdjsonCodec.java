@@ -0,0 +1,131 @@
+package target;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import configuration.Config;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import org.json.JSONException;
+import org.json.JSONObject;
+import reactor.kafka.receiver.ReceiverRecord;
+
+// Writes every record as one line of JSON:
+// {"topic":"t","partition":0,"offset":1,"timestamp":0,"originalTopic":"t","key":"k","headers":{},"value":{...}}
+// and reads acknowledgements as lines of {"topic":"t","partition":0,"offset":1,"status":200,"message":""},
+// status defaulting to 200. Values that aren't JSON can't be written in a line, writing them fails with a
+// MalformedRecordException before anything is written
+final class NdjsonCodec implements StreamCodec {
+
+    private static final MediaType NDJSON = MediaType.get("application/x-ndjson");
+    private static final byte[] NULL = "null".getBytes(StandardCharsets.UTF_8);
+
+    private final PayloadExtractor picker;
+
+    NdjsonCodec() {
+        this.picker =
+            Config.RECORD_PICK_FIELD.isEmpty() ? null : new PayloadExtractor(Config.RECORD_PICK_FIELD, List.of());
+    }
+
+    @Override
+    public MediaType contentType() {
+        return NDJSON;
+    }
+
+    @Override
+    public Headers headers() {
+        return Headers.of();
+    }
+
+    @Override
+    public void write(BufferedSink sink, ReceiverRecord<byte[], byte[]> record, String originalTopic)
+        throws IOException {
+        var value = value(record);
+        sink.writeUtf8("{\"topic\":").writeUtf8(JSONObject.quote(record.topic()));
+        sink.writeUtf8(",\"partition\":").writeUtf8(String.valueOf(record.partition()));
+        sink.writeUtf8(",\"offset\":").writeUtf8(String.valueOf(record.offset()));
+        sink.writeUtf8(",\"timestamp\":").writeUtf8(String.valueOf(record.timestamp()));
+        sink.writeUtf8(",\"originalTopic\":").writeUtf8(JSONObject.quote(originalTopic));
+        if (record.key() != null) {
+            sink.writeUtf8(",\"key\":").writeUtf8(JSONObject.quote(new String(record.key(), StandardCharsets.UTF_8)));
+        }
+        sink.writeUtf8(",\"headers\":{");
+        var first = true;
+        for (var header : record.headers()) {
+            sink.writeUtf8(first ? "" : ",").writeUtf8(JSONObject.quote(header.key())).writeUtf8(":");
+            sink.writeUtf8(
+                header.value() == null ? "null" : JSONObject.quote(new String(header.value(), StandardCharsets.UTF_8))
+            );
+            first = false;
+        }
+        sink.writeUtf8("},\"value\":");
+        writeLine(sink, value);
+        sink.writeUtf8("}\n");
+    }
+
+    private byte[] value(ReceiverRecord<byte[], byte[]> record) throws MalformedRecordException {
+        if (record.value() == null) {
+            return NULL;
+        }
+        if (picker != null) {
+            return picker.pick(record.value()).readByteArray();
+        }
+        validate(record.value());
+        return record.value();
+    }
+
+    private static void validate(byte[] json) throws MalformedRecordException {
+        try {
+            var reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+            reader.skipValue();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalStateException("unexpected json token " + reader.peek());
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedRecordException(e);
+        }
+    }
+
+    // Line breaks can only be whitespace between JSON tokens (they're escaped inside strings), so they're
+    // flattened to keep the record on its line
+    private static void writeLine(BufferedSink sink, byte[] json) throws IOException {
+        var start = 0;
+        for (int i = 0; i < json.length; i++) {
+            if (json[i] == '\n' || json[i] == '\r') {
+                sink.write(json, start, i - start).writeByte(' ');
+                start = i + 1;
+            }
+        }
+        sink.write(json, start, json.length - start);
+    }
+
+    @Override
+    public Ack read(BufferedSource source) throws IOException {
+        String line;
+        do {
+            line = source.readUtf8Line();
+            if (line == null) {
+                return null;
+            }
+        } while (line.isBlank());
+
+        try {
+            var ack = new JSONObject(line);
+            return new Ack(
+                ack.getString("topic"),
+                ack.getInt("partition"),
+                ack.getLong("offset"),
+                ack.optInt("status", 200),
+                ack.optString("message", "")
+            );
+        } catch (JSONException e) {
+            throw new IOException("malformed acknowledgement: " + line, e);
+        }
+    }
+}
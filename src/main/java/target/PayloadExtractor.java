@@ -0,0 +1,162 @@
+package target;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import configuration.Config;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import okio.Buffer;
+
+// Reads what a request needs from a record value in one streaming pass over its top level fields: the
+// RECORD_PICK_FIELD value is copied out, the BODY_HEADERS_PATHS objects are read as headers and everything else
+// is skipped without being parsed into a tree. The whole value is still read, so values the parsers this replaced
+// rejected (Gson's for the picked field, org.json's for headers) are rejected too, unquoted strings being accepted
+// by both
+public class PayloadExtractor {
+
+    // picked is null without RECORD_PICK_FIELD (the field's last value if it's repeated), headers of later
+    // BODY_HEADERS_PATHS override earlier ones
+    public record Payload(Buffer picked, Map<String, String> headers) {}
+
+    private final String pickField;
+    private final List<String> headersPaths;
+
+    public PayloadExtractor(String pickField, List<String> headersPaths) {
+        this.pickField = pickField;
+        this.headersPaths = headersPaths;
+    }
+
+    public static PayloadExtractor create() {
+        var pickField = Config.RECORD_PICK_FIELD.isEmpty() ? null : Config.RECORD_PICK_FIELD;
+        var headersPaths = Config.BODY_HEADERS_PATHS != null ? Config.BODY_HEADERS_PATHS : List.<String>of();
+        if (pickField == null && headersPaths.isEmpty()) {
+            return null;
+        }
+        return new PayloadExtractor(pickField, headersPaths);
+    }
+
+    public boolean picks() {
+        return pickField != null;
+    }
+
+    // Only the picked field, for bodies that don't take headers
+    public Buffer pick(byte[] json) throws MalformedRecordException {
+        return extract(json, false).picked();
+    }
+
+    public Payload extract(byte[] json) throws MalformedRecordException {
+        return extract(json, true);
+    }
+
+    private Payload extract(byte[] json, boolean withHeaders) throws MalformedRecordException {
+        Buffer picked = null;
+        var headersByPath = new HashMap<String, Map<String, String>>();
+        var readsHeaders = withHeaders && !headersPaths.isEmpty();
+        var names = new HashSet<String>();
+        try {
+            var reader = new JsonReader(new InputStreamReader(new ByteArrayInputStream(json), StandardCharsets.UTF_8));
+            reader.setLenient(true);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                var name = reader.nextName();
+                // org.json rejected repeated keys
+                if (readsHeaders && !names.add(name)) {
+                    throw new IllegalStateException("duplicate key " + name);
+                }
+                if (name.equals(pickField)) {
+                    picked = copy(reader);
+                } else if (readsHeaders && headersPaths.contains(name)) {
+                    headersByPath.put(name, readHeaders(reader));
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+            if (pickField != null && reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IllegalStateException("unexpected json token " + reader.peek() + " after the value");
+            }
+            if (pickField != null && picked == null) {
+                picked = new Buffer().writeUtf8("null");
+            }
+        } catch (IOException | RuntimeException e) {
+            throw new MalformedRecordException(e);
+        }
+
+        var headers = new LinkedHashMap<String, String>();
+        for (var path : headersPaths) {
+            var pathHeaders = headersByPath.get(path);
+            if (pathHeaders != null) {
+                headers.putAll(pathHeaders);
+            }
+        }
+        return new Payload(picked, headers);
+    }
+
+    // Null values are left out, other values must be strings
+    private static Map<String, String> readHeaders(JsonReader reader) throws IOException {
+        var headers = new LinkedHashMap<String, String>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            var name = reader.nextName();
+            switch (reader.peek()) {
+                case NULL -> reader.nextNull();
+                case STRING -> headers.put(name, reader.nextString());
+                default -> throw new IllegalStateException("header " + name + " is not a string");
+            }
+        }
+        reader.endObject();
+        return headers;
+    }
+
+    private static Buffer copy(JsonReader reader) throws IOException {
+        var picked = new Buffer();
+        var writer = new JsonWriter(new OutputStreamWriter(picked.outputStream(), StandardCharsets.UTF_8));
+        writer.setLenient(true);
+        writer.setHtmlSafe(true);
+        writer.setSerializeNulls(false);
+        copy(reader, writer);
+        writer.flush();
+        return picked;
+    }
+
+    private static void copy(JsonReader reader, JsonWriter writer) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_ARRAY -> {
+                reader.beginArray();
+                writer.beginArray();
+                while (reader.hasNext()) {
+                    copy(reader, writer);
+                }
+                reader.endArray();
+                writer.endArray();
+            }
+            case BEGIN_OBJECT -> {
+                reader.beginObject();
+                writer.beginObject();
+                while (reader.hasNext()) {
+                    writer.name(reader.nextName());
+                    copy(reader, writer);
+                }
+                reader.endObject();
+                writer.endObject();
+            }
+            case STRING -> writer.value(reader.nextString());
+            case NUMBER -> writer.jsonValue(reader.nextString());
+            case BOOLEAN -> writer.value(reader.nextBoolean());
+            case NULL -> {
+                reader.nextNull();
+                writer.nullValue();
+            }
+            default -> throw new IllegalStateException("unexpected json token " + reader.peek());
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package target;
+
+import configuration.Config;
+import monitoring.Monitor;
+
+// Process-wide token bucket shared by every route: each first attempt deposits TARGET_RETRY_BUDGET_RATIO of a
+// token and each retry withdraws a whole one, so retries stay a bounded share of the attempts however many calls
+// are retrying at once. TARGET_RETRY_BUDGET_MIN_PER_SECOND tokens are added every second on top, for low traffic
+// to still be able to retry, and the bucket holds at most RESERVE_SECONDS of those
+public class RetryBudget {
+
+    private static final int RESERVE_SECONDS = 10;
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefill;
+
+    public RetryBudget(double ratio, double minPerSecond) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.capacity = Math.max(minPerSecond * RESERVE_SECONDS, 1);
+        this.tokens = capacity;
+        this.lastRefill = System.nanoTime();
+        Monitor.retryBudgetTokens(tokens);
+    }
+
+    public static RetryBudget create() {
+        if (Config.TARGET_RETRY_BUDGET_RATIO <= 0) {
+            return null;
+        }
+        return new RetryBudget(Config.TARGET_RETRY_BUDGET_RATIO, Config.TARGET_RETRY_BUDGET_MIN_PER_SECOND);
+    }
+
+    public void onAttempt() {
+        double current;
+        synchronized (this) {
+            refill();
+            tokens = Math.min(capacity, tokens + ratio);
+            current = tokens;
+        }
+        Monitor.retryBudgetTokens(current);
+    }
+
+    public boolean tryRetry() {
+        double current;
+        synchronized (this) {
+            refill();
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            current = tokens;
+        }
+        Monitor.retryBudgetTokens(current);
+        return true;
+    }
+
+    private void refill() {
+        var now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + minPerSecond * (now - lastRefill) / 1e9);
+        lastRefill = now;
+    }
+}
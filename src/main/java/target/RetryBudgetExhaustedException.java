@@ -0,0 +1,17 @@
+package target;
+
+public class RetryBudgetExhaustedException extends Exception {
+
+    public RetryBudgetExhaustedException(int attempt, Integer lastStatusCode, Throwable lastFailure) {
+        super(
+            String.format(
+                "retry budget exhausted after attempt %s, last %s",
+                attempt,
+                lastStatusCode != null ? "status code " + lastStatusCode : "failure: " + lastFailure
+            )
+        );
+        if (lastFailure != null) {
+            initCause(lastFailure);
+        }
+    }
+}
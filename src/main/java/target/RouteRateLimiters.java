@@ -0,0 +1,107 @@
+package target;
+
+import configuration.Config;
+import dev.failsafe.RateLimiter;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import monitoring.Monitor;
+import okhttp3.HttpUrl;
+
+// Smooth Failsafe rate limiters for the routes of TARGET_RATE_LIMITS, spacing every attempt to a route (retries
+// and streamed records included) to the route's requests per second. An attempt over the rate is scheduled for
+// when its permit comes up instead of blocking a thread, and while any is waiting the route is reported as
+// throttled, so its partitions are paused rather than fetching more records to wait in memory. The route is only
+// released once nothing waited for a quiet period (two permits, at least a second), so a route paced right at its
+// rate isn't paused and resumed on every attempt
+public class RouteRateLimiters {
+
+    private static class Route {
+
+        private final RateLimiter<Object> rateLimiter;
+        private final Duration quietPeriod;
+        // Guarded by this
+        private int waiting;
+        private boolean throttled;
+        // Counts the times waiting dropped to 0, a release is only due if it didn't since
+        private long idled;
+
+        private Route(double requestsPerSecond) {
+            var interval = Duration.ofNanos((long) (1e9 / requestsPerSecond));
+            this.rateLimiter = RateLimiter.smoothBuilder(interval).build();
+            var twoPermits = interval.multipliedBy(2);
+            this.quietPeriod = twoPermits.compareTo(Duration.ofSeconds(1)) > 0 ? twoPermits : Duration.ofSeconds(1);
+        }
+    }
+
+    private final Map<HttpUrl, Route> routes = new HashMap<>();
+    private volatile BiConsumer<HttpUrl, Boolean> throttleListener = (route, throttled) -> {};
+
+    private RouteRateLimiters() {
+        Config.TARGET_RATE_LIMITS.forEach((path, requestsPerSecond) ->
+            routes.put(HttpUrl.get(Config.TARGET_BASE_URL + path), new Route(requestsPerSecond))
+        );
+    }
+
+    public static RouteRateLimiters create() {
+        if (Config.TARGET_RATE_LIMITS.isEmpty()) {
+            return null;
+        }
+        return new RouteRateLimiters();
+    }
+
+    // Called with true when attempts to the route start waiting for permits, with false once none did for the
+    // route's quiet period
+    public void onThrottleChange(BiConsumer<HttpUrl, Boolean> listener) {
+        this.throttleListener = listener;
+    }
+
+    // Completes when the attempt may start, right away for routes without a limit
+    public CompletableFuture<Void> acquire(HttpUrl url) {
+        var route = routes.get(url);
+        if (route == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        var wait = route.rateLimiter.reservePermit();
+        if (wait.isZero()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        synchronized (route) {
+            route.waiting++;
+            if (!route.throttled) {
+                route.throttled = true;
+                throttleListener.accept(url, true);
+            }
+            Monitor.targetRateLimitWaiting(url.toString(), route.waiting);
+        }
+        return CompletableFuture.runAsync(
+            () -> {
+                synchronized (route) {
+                    if (--route.waiting == 0) {
+                        releaseWhenQuiet(url, route, ++route.idled);
+                    }
+                    Monitor.targetRateLimitWaiting(url.toString(), route.waiting);
+                }
+            },
+            CompletableFuture.delayedExecutor(wait.toNanos(), TimeUnit.NANOSECONDS, TargetExecutors.executor())
+        );
+    }
+
+    private void releaseWhenQuiet(HttpUrl url, Route route, long idled) {
+        CompletableFuture
+            .delayedExecutor(route.quietPeriod.toNanos(), TimeUnit.NANOSECONDS, TargetExecutors.executor())
+            .execute(() -> {
+                synchronized (route) {
+                    if (route.throttled && route.waiting == 0 && route.idled == idled) {
+                        route.throttled = false;
+                        throttleListener.accept(url, false);
+                    }
+                }
+            });
+    }
+}
@@ -0,0 +1,23 @@
+package target;
+
+import java.io.IOException;
+import okhttp3.Headers;
+import okhttp3.MediaType;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import reactor.kafka.receiver.ReceiverRecord;
+
+// How records are written to a TargetStream and acknowledgements are read back from it
+interface StreamCodec {
+    // status is the HTTP status the target answered the record with
+    record Ack(String topic, int partition, long offset, int status, String message) {}
+
+    MediaType contentType();
+
+    Headers headers();
+
+    void write(BufferedSink sink, ReceiverRecord<byte[], byte[]> record, String originalTopic) throws IOException;
+
+    // Returns null once the stream ended
+    Ack read(BufferedSource source) throws IOException;
+}
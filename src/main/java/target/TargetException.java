@@ -1,6 +1,8 @@
 package target;
 
 import configuration.Config;
+import dev.failsafe.CircuitBreakerOpenException;
+import java.io.IOException;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.Headers;
 import org.apache.kafka.common.header.internals.RecordHeaders;
@@ -18,7 +20,20 @@ public class TargetException extends Exception {
         this.error = error;
     }
 
-    public Headers getHeaders(ReceiverRecord<String, String> record) {
+    // Failures the retry policy gave up on that may still succeed later: retried status codes, connection
+    // failures, open route circuit breakers and retries denied by the retry budget
+    public boolean isRetryable() {
+        if (responseCode != null) {
+            return Config.STATUS_CLASSIFIER.isConnectionRetry(responseCode) || Config.STATUS_CLASSIFIER.isRetry(responseCode);
+        }
+        return (
+            (error instanceof IOException && !(error instanceof MalformedRecordException)) ||
+            error instanceof CircuitBreakerOpenException ||
+            error instanceof RetryBudgetExhaustedException
+        );
+    }
+
+    public Headers getHeaders(ReceiverRecord<byte[], byte[]> record) {
         Headers headers = record.headers();
         Header originalTopic = headers.lastHeader(Config.ORIGINAL_TOPIC);
         Headers headersToSend = new RecordHeaders();
@@ -33,10 +48,12 @@ public class TargetException extends Exception {
 
         headersToSend.add(Config.ORIGINAL_TOPIC, record.topic().getBytes());
         headersToSend.add("x-group-id", Config.GROUP_ID.getBytes());
-        headersToSend.add("x-response-status-code", String.valueOf(responseCode).getBytes());
-        headersToSend.add("x-response-body", responseBody.getBytes());
+        if (responseCode != null) {
+            headersToSend.add("x-response-status-code", String.valueOf(responseCode).getBytes());
+            headersToSend.add("x-response-body", responseBody.getBytes());
+        }
         if (error != null) {
-            headersToSend.add("x-unexpected-exception-message", error.getMessage().getBytes());
+            headersToSend.add("x-unexpected-exception-message", String.valueOf(error.getMessage()).getBytes());
         }
 
         return headersToSend;
@@ -0,0 +1,37 @@
+package target;
+
+import configuration.Config;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+// Where target calls are dispatched and their responses handled. With TARGET_VIRTUAL_THREADS every task gets its
+// own virtual thread, so blocking work (dead letter production, response bodies) doesn't hold pooled threads
+public class TargetExecutors {
+
+    public static Scheduler scheduler(Scheduler platformScheduler) {
+        return Config.TARGET_VIRTUAL_THREADS ? VirtualThreads.scheduler : platformScheduler;
+    }
+
+    public static Executor executor() {
+        return Config.TARGET_VIRTUAL_THREADS ? VirtualThreads.executor : ForkJoinPool.commonPool();
+    }
+
+    private static class VirtualThreads {
+
+        private static final ExecutorService executor = newVirtualThreadPerTaskExecutor();
+        private static final Scheduler scheduler = Schedulers.fromExecutorService(executor, "virtual");
+
+        // Looked up reflectively so the sources keep compiling for the current language level
+        private static ExecutorService newVirtualThreadPerTaskExecutor() {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("TARGET_VIRTUAL_THREADS requires Java 21", e);
+            }
+        }
+    }
+}
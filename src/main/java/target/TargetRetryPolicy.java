@@ -1,78 +1,254 @@
 package target;
 
 import configuration.Config;
+import dev.failsafe.AsyncExecution;
+import dev.failsafe.CircuitBreaker;
+import dev.failsafe.CircuitBreakerOpenException;
+import dev.failsafe.Failsafe;
+import dev.failsafe.FailsafeExecutor;
 import dev.failsafe.RetryPolicy;
-import dev.failsafe.event.ExecutionAttemptedEvent;
-import dev.failsafe.okhttp.FailsafeCall;
 import java.io.IOException;
 import java.time.Duration;
 import java.time.temporal.ChronoUnit;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 import monitoring.Monitor;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.Response;
 
 public class TargetRetryPolicy {
 
-    public static FailsafeCall.FailsafeCallBuilder create(String batchRequestId, String targetRequestId) {
+    private final RetryPolicy<Response> connectionRetryPolicy;
+    private final RetryPolicy<Response> executionRetryPolicy;
+    private final Map<HttpUrl, FailsafeExecutor<Response>> routeExecutors = new ConcurrentHashMap<>();
+    private final ConcurrencyLimiter limiter;
+    private final RetryBudget retryBudget;
+    private final RouteRateLimiters rateLimiters;
+    private volatile BiConsumer<HttpUrl, Boolean> circuitListener = (route, open) -> {};
+    private volatile Consumer<HttpUrl> closeListener = route -> {};
+
+    public TargetRetryPolicy(ConcurrencyLimiter limiter, RetryBudget retryBudget, RouteRateLimiters rateLimiters) {
+        this.limiter = limiter;
+        this.retryBudget = retryBudget;
+        this.rateLimiters = rateLimiters;
+
         var connectionFailureDelay = Config.CONNECTION_FAILURE_RETRY_POLICY_EXPONENTIAL_BACKOFF.get(0);
         var connectionFailureMaxDelay = Config.CONNECTION_FAILURE_RETRY_POLICY_EXPONENTIAL_BACKOFF.get(1);
         var connectionFailureDelayFactor = Config.CONNECTION_FAILURE_RETRY_POLICY_EXPONENTIAL_BACKOFF.get(2);
         var connectionFailureMaxDuration = Duration.ofMillis(Config.CONNECTION_FAILURE_RETRY_POLICY_MAX_DURATION_MS);
+        // With a retry log, failing records are parked after their first attempt and retried by its replays, retrying
+        // them here would hold up their poll batch
+        var retryInProcess = Config.RETRY_LOG_PATH == null;
 
-        var connectionRetryPolicy = RetryPolicy
-            .<Response>builder()
-            .withBackoff(
-                connectionFailureDelay,
-                connectionFailureMaxDelay,
-                ChronoUnit.MILLIS,
-                connectionFailureDelayFactor
-            )
-            .withMaxDuration(connectionFailureMaxDuration)
-            .withMaxAttempts(Config.CONNECTION_FAILURE_RETRY_POLICY_MAX_RETRIES)
-            .handle(IOException.class)
-            .handleResultIf(r ->
-                Integer.toString(r.code()).matches(Config.CONNECTION_RETRY_PROCESS_WHEN_STATUS_CODE_MATCH)
-            )
-            .onRetry(e -> {
-                Monitor.targetConnectionRetry(
-                    extractAttemptedResponseBody(e),
-                    e.getLastException(),
-                    e.getAttemptCount(),
-                    batchRequestId,
-                    targetRequestId
-                );
-            })
-            .build();
+        this.connectionRetryPolicy =
+            RetryPolicy
+                .<Response>builder()
+                .withBackoff(
+                    connectionFailureDelay,
+                    connectionFailureMaxDelay,
+                    ChronoUnit.MILLIS,
+                    connectionFailureDelayFactor
+                )
+                .withMaxDuration(connectionFailureMaxDuration)
+                .withMaxAttempts(retryInProcess ? Config.CONNECTION_FAILURE_RETRY_POLICY_MAX_RETRIES : 1)
+                // Attempts rejected by an open route circuit breaker wait for it to half-open
+                .withDelayFnOn(
+                    context -> {
+                        var breaker = ((CircuitBreakerOpenException) context.getLastException()).getCircuitBreaker();
+                        var remainingDelay = breaker.getRemainingDelay().toMillis();
+                        return Duration.ofMillis(Math.max(remainingDelay, connectionFailureDelay));
+                    },
+                    CircuitBreakerOpenException.class
+                )
+                .handleIf(e -> isConnectionFailure(e) || e instanceof CircuitBreakerOpenException)
+                .handleResultIf(r -> Config.STATUS_CLASSIFIER.isConnectionRetry(r.code()))
+                .build();
 
         var delay = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(0);
         var maxDelay = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(1);
         var delayFactor = Config.RETRY_POLICY_EXPONENTIAL_BACKOFF.get(2);
         var maxDuration = Duration.ofMillis(Config.RETRY_POLICY_MAX_DURATION_MS);
 
-        var executionRetryPolicy = dev.failsafe.RetryPolicy
+        this.executionRetryPolicy =
+            RetryPolicy
+                .<Response>builder()
+                .withBackoff(delay, maxDelay, ChronoUnit.MILLIS, delayFactor)
+                .withMaxDuration(maxDuration)
+                .withMaxAttempts(retryInProcess ? Config.RETRY_POLICY_MAX_RETRIES : 1)
+                .handleIf(e -> false)
+                .handleResultIf(r -> Config.STATUS_CLASSIFIER.isRetry(r.code()))
+                .build();
+    }
+
+    // Called with true when the circuit breaker of a route opens, with false when consumption should resume: when
+    // the breaker half-opens, closes, or its delay is over, records of the route being the half-open probes
+    public void onCircuitStateChange(BiConsumer<HttpUrl, Boolean> listener) {
+        this.circuitListener = listener;
+    }
+
+    // Called only when the circuit breaker of a route closes, after its half-open probes succeeded
+    public void onCircuitClose(Consumer<HttpUrl> listener) {
+        this.closeListener = listener;
+    }
+
+    public CompletableFuture<Response> execute(
+        HttpUrl route,
+        OkHttpClient client,
+        Request request,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        return routeExecutors
+            .computeIfAbsent(route, this::createExecutor)
+            .getAsyncExecution(execution -> {
+                if (execution.isRetry()) {
+                    // Waiting out an open circuit breaker doesn't reach the target, so it isn't charged
+                    if (
+                        retryBudget != null &&
+                        !(execution.getLastException() instanceof CircuitBreakerOpenException) &&
+                        !retryBudget.tryRetry()
+                    ) {
+                        onRetryDenied(execution, batchRequestId, targetRequestId);
+                        return;
+                    }
+                    onRetry(execution, batchRequestId, targetRequestId);
+                } else if (retryBudget != null) {
+                    retryBudget.onAttempt();
+                }
+
+                if (rateLimiters == null) {
+                    attempt(execution, client, request);
+                } else {
+                    rateLimiters.acquire(route).thenRun(() -> attempt(execution, client, request));
+                }
+            });
+    }
+
+    private void attempt(AsyncExecution<Response> execution, OkHttpClient client, Request request) {
+        var call = client.newCall(request);
+        var attemptStart = System.nanoTime();
+        execution.onCancel(call::cancel);
+        call.enqueue(
+            new Callback() {
+                @Override
+                public void onResponse(Call call, Response response) {
+                    if (limiter != null) {
+                        var code = response.code();
+                        limiter.onSample(
+                            attemptStart,
+                            Config.STATUS_CLASSIFIER.isConnectionRetry(code) || Config.STATUS_CLASSIFIER.isRetry(code)
+                        );
+                    }
+                    execution.recordResult(response);
+                }
+
+                @Override
+                public void onFailure(Call call, IOException e) {
+                    if (limiter != null) {
+                        limiter.onSample(attemptStart, true);
+                    }
+                    execution.recordException(e);
+                }
+            }
+        );
+    }
+
+    // Policies are shared, executors are kept per route so route specific policies can be composed in
+    private FailsafeExecutor<Response> createExecutor(HttpUrl route) {
+        if (Config.TARGET_CIRCUIT_BREAKER_FAILURES <= 0) {
+            return Failsafe.with(executionRetryPolicy, connectionRetryPolicy);
+        }
+        return Failsafe.with(executionRetryPolicy, connectionRetryPolicy, createCircuitBreaker(route));
+    }
+
+    // Counts every attempt, opening after TARGET_CIRCUIT_BREAKER_FAILURES consecutive connection failures
+    private CircuitBreaker<Response> createCircuitBreaker(HttpUrl route) {
+        var delay = Duration.ofMillis(Config.TARGET_CIRCUIT_BREAKER_DELAY_MS);
+        var opened = new AtomicInteger();
+        return CircuitBreaker
             .<Response>builder()
-            .withBackoff(delay, maxDelay, ChronoUnit.MILLIS, delayFactor)
-            .withMaxDuration(maxDuration)
-            .withMaxAttempts(Config.RETRY_POLICY_MAX_RETRIES)
-            .handleIf(e -> false)
-            .handleResultIf(r -> Integer.toString(r.code()).matches(Config.RETRY_PROCESS_WHEN_STATUS_CODE_MATCH))
-            .onRetry(e ->
-                Monitor.targetExecutionRetry(
-                    extractAttemptedResponseBody(e),
-                    e.getLastException(),
-                    e.getAttemptCount(),
-                    batchRequestId,
-                    targetRequestId
-                )
-            )
+            .withFailureThreshold(Config.TARGET_CIRCUIT_BREAKER_FAILURES)
+            .withDelay(delay)
+            .handleIf(TargetRetryPolicy::isConnectionFailure)
+            .handleResultIf(r -> Config.STATUS_CLASSIFIER.isConnectionRetry(r.code()))
+            .onOpen(__ -> {
+                Monitor.targetCircuitStateChanged(route.toString(), CircuitBreaker.State.OPEN);
+                circuitListener.accept(route, true);
+                // Nothing may be in flight to half-open the breaker, so consumption resumes to probe the route,
+                // unless it opened again since
+                var opening = opened.incrementAndGet();
+                CompletableFuture
+                    .delayedExecutor(delay.toMillis(), TimeUnit.MILLISECONDS)
+                    .execute(() -> {
+                        if (opened.get() == opening) {
+                            circuitListener.accept(route, false);
+                        }
+                    });
+            })
+            .onHalfOpen(__ -> {
+                Monitor.targetCircuitStateChanged(route.toString(), CircuitBreaker.State.HALF_OPEN);
+                circuitListener.accept(route, false);
+            })
+            .onClose(__ -> {
+                Monitor.targetCircuitStateChanged(route.toString(), CircuitBreaker.State.CLOSED);
+                circuitListener.accept(route, false);
+                closeListener.accept(route);
+            })
             .build();
+    }
+
+    // Retries are reported from the next attempt, where the request ids are in scope, instead of from
+    // per-call policy listeners
+    private static void onRetry(AsyncExecution<Response> execution, String batchRequestId, String targetRequestId) {
+        var lastResult = execution.getLastResult();
+        var lastException = execution.getLastException();
+        var attempt = execution.getAttemptCount();
+        var responseBody = extractAttemptedResponseBody(lastResult);
+
+        if (
+            isConnectionFailure(lastException) ||
+            lastException instanceof CircuitBreakerOpenException ||
+            (lastResult != null && Config.STATUS_CLASSIFIER.isConnectionRetry(lastResult.code()))
+        ) {
+            Monitor.targetConnectionRetry(responseBody, lastException, attempt, batchRequestId, targetRequestId);
+        } else {
+            Monitor.targetExecutionRetry(responseBody, lastException, attempt, batchRequestId, targetRequestId);
+        }
+    }
+
+    // Fails the call without another attempt, the retry policies don't handle the exception
+    private static void onRetryDenied(
+        AsyncExecution<Response> execution,
+        String batchRequestId,
+        String targetRequestId
+    ) {
+        var lastResult = execution.getLastResult();
+        var attempt = execution.getAttemptCount();
+        var lastStatusCode = lastResult != null ? lastResult.code() : null;
+        extractAttemptedResponseBody(lastResult);
+        Monitor.retryBudgetExhausted(attempt, lastStatusCode, batchRequestId, targetRequestId);
+        execution.recordException(
+            new RetryBudgetExhaustedException(attempt, lastStatusCode, execution.getLastException())
+        );
+    }
 
-        return FailsafeCall.with(executionRetryPolicy, connectionRetryPolicy);
+    private static boolean isConnectionFailure(Throwable e) {
+        return e instanceof IOException && !(e instanceof MalformedRecordException);
     }
 
-    private static Optional<String> extractAttemptedResponseBody(ExecutionAttemptedEvent<Response> e) {
+    private static Optional<String> extractAttemptedResponseBody(Response lastResult) {
         return Optional
-            .ofNullable(e.getLastResult())
+            .ofNullable(lastResult)
             .flatMap(r -> {
                 try {
                     try (Response response = r) {
@@ -0,0 +1,135 @@
+package target;
+
+import configuration.Config;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.HttpUrl;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+import org.jetbrains.annotations.NotNull;
+import reactor.kafka.receiver.ReceiverRecord;
+
+// A long-lived call over HTTP/2 with a duplex request body. Records are written to it as they come and
+// completed by the Ack the target streams back for them; once the stream fails every pending record fails
+// with it and the stream is replaced on the next send. Records the codec can't write, or that aren't acked within
+// TARGET_TIMEOUT_MS, fail on their own
+class TargetStream implements Callback {
+
+    private record AckKey(String topic, int partition, long offset) {}
+
+    private final Call call;
+    private final CompletableFuture<BufferedSink> sink = new CompletableFuture<>();
+    private final Map<AckKey, CompletableFuture<StreamCodec.Ack>> pending = new ConcurrentHashMap<>();
+    private final StreamCodec codec;
+    private volatile boolean closed;
+
+    TargetStream(OkHttpClient client, HttpUrl url, StreamCodec codec) {
+        this.codec = codec;
+        var request = new Request.Builder()
+            .url(url)
+            .headers(codec.headers())
+            .post(
+                new RequestBody() {
+                    @Override
+                    public MediaType contentType() {
+                        return codec.contentType();
+                    }
+
+                    @Override
+                    public boolean isDuplex() {
+                        return true;
+                    }
+
+                    @Override
+                    public void writeTo(@NotNull BufferedSink bufferedSink) {
+                        sink.complete(bufferedSink);
+                    }
+                }
+            )
+            .build();
+        this.call = client.newCall(request);
+        this.call.enqueue(this);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    CompletableFuture<StreamCodec.Ack> send(ReceiverRecord<byte[], byte[]> record, String originalTopic) {
+        var ack = new CompletableFuture<StreamCodec.Ack>();
+        var key = new AckKey(record.topic(), record.partition(), record.offset());
+        pending.put(key, ack);
+        if (closed) {
+            pending.remove(key);
+            return CompletableFuture.failedFuture(new IOException("target stream closed"));
+        }
+        ack
+            .orTimeout(Config.TARGET_TIMEOUT_MS, TimeUnit.MILLISECONDS)
+            .whenComplete((__, throwable) -> pending.remove(key, ack));
+
+        sink.thenAcceptAsync(
+            bufferedSink -> {
+                try {
+                    synchronized (this) {
+                        codec.write(bufferedSink, record, originalTopic);
+                        bufferedSink.flush();
+                    }
+                } catch (MalformedRecordException e) {
+                    ack.completeExceptionally(e);
+                } catch (IOException e) {
+                    fail(e);
+                }
+            },
+            TargetExecutors.executor()
+        );
+        return ack;
+    }
+
+    // Runs on a dispatcher thread for as long as the stream lives
+    @Override
+    public void onResponse(@NotNull Call call, @NotNull Response response) {
+        try (response) {
+            // A grpc-status header is a trailers-only response, the call ended before it started
+            if (response.code() != 200 || response.header("grpc-status") != null) {
+                throw new IOException(String.format("target stream rejected with status %d", response.code()));
+            }
+
+            var source = response.body().source();
+            for (var ack = codec.read(source); ack != null; ack = codec.read(source)) {
+                var completed = pending.remove(new AckKey(ack.topic(), ack.partition(), ack.offset()));
+                if (completed != null) {
+                    completed.complete(ack);
+                }
+            }
+            throw new IOException("target stream ended");
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    @Override
+    public void onFailure(@NotNull Call call, @NotNull IOException e) {
+        fail(e);
+    }
+
+    private void fail(IOException e) {
+        closed = true;
+        call.cancel();
+        sink.completeExceptionally(e);
+        for (var key : pending.keySet()) {
+            var ack = pending.remove(key);
+            if (ack != null) {
+                ack.completeExceptionally(e);
+            }
+        }
+    }
+}
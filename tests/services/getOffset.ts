@@ -1,9 +1,9 @@
 import {Kafka} from 'kafkajs';
 
-export const getOffset = async (kafka: Kafka, topic: string) => {
+export const getOffset = async (kafka: Kafka, topic: string, partition = 0) => {
     const admin = kafka.admin();
     await admin.connect();
     const metadata = await admin.fetchOffsets({groupId: 'test', topics: [topic]});
     admin.disconnect();
-    return Number.parseInt(metadata[0]?.partitions[0]?.offset!);
+    return Number.parseInt(metadata[0]?.partitions.find((offset) => offset.partition === partition)?.offset!);
 };
@@ -0,0 +1,182 @@
+import http2 from 'node:http2';
+import fs from 'node:fs';
+import type {AddressInfo} from 'node:net';
+
+type Field = {number: number; type: string; name: string; repeated: boolean};
+type Message = Record<string, unknown>;
+
+export interface GrpcCall {
+    method: string;
+    records: Message[];
+}
+
+// The fields of the messages of target.proto, read from the proto itself so the specs fail when the consumer's
+// hand written codec drifts from it
+const proto = fs.readFileSync(new URL('../../src/main/proto/target.proto', import.meta.url), 'utf8');
+
+const messageFields = (message: string): Field[] => {
+    const body = proto.match(new RegExp(`message ${message} \\{([^}]*)\\}`))?.[1];
+    if (body === undefined) {
+        throw new Error(`message ${message} not found in target.proto`);
+    }
+    return [...body.matchAll(/(repeated )?(\w+) (\w+) = (\d+);/g)].map(([, repeated, type, name, number]) => ({
+        number: Number(number),
+        type: type!,
+        name: name!,
+        repeated: repeated !== undefined,
+    }));
+};
+
+const readVarint = (buffer: Buffer, position: number): [bigint, number] => {
+    let value = 0n;
+    let shift = 0n;
+    let byte;
+    do {
+        byte = buffer[position++]!;
+        value |= BigInt(byte & 0x7f) << shift;
+        shift += 7n;
+    } while (byte & 0x80);
+    return [value, position];
+};
+
+const writeVarint = (value: number) => {
+    const bytes = [];
+    do {
+        bytes.push((value & 0x7f) | (value > 0x7f ? 0x80 : 0));
+        value >>>= 7;
+    } while (value > 0);
+    return Buffer.from(bytes);
+};
+
+const decode = (message: string, buffer: Buffer): Message => {
+    const fields = messageFields(message);
+    const decoded: Message = {};
+    let position = 0;
+    while (position < buffer.length) {
+        const [tag, afterTag] = readVarint(buffer, position);
+        const field = fields.find(({number}) => BigInt(number) === tag >> 3n);
+        if (!field) {
+            throw new Error(`field ${tag >> 3n} is not in message ${message} of target.proto`);
+        }
+
+        let value: unknown;
+        if ((tag & 7n) === 0n) {
+            const [varint, next] = readVarint(buffer, afterTag);
+            value = Number(varint);
+            position = next;
+        } else if ((tag & 7n) === 2n) {
+            const [length, start] = readVarint(buffer, afterTag);
+            const bytes = buffer.subarray(start, start + Number(length));
+            value = ['string', 'bytes'].includes(field.type) ? bytes.toString() : decode(field.type, bytes);
+            position = start + Number(length);
+        } else {
+            throw new Error(`unexpected wire type ${tag & 7n} for ${message}.${field.name}`);
+        }
+
+        if (field.repeated) {
+            decoded[field.name] = [...((decoded[field.name] as unknown[]) ?? []), value];
+        } else {
+            decoded[field.name] = value;
+        }
+    }
+    return decoded;
+};
+
+// Only strings and non-negative integers, enough for acks
+const encode = (message: string, values: Record<string, string | number>) => {
+    const fields = messageFields(message);
+    return Buffer.concat(
+        Object.entries(values).flatMap(([name, value]) => {
+            const field = fields.find((field) => field.name === name);
+            if (!field) {
+                throw new Error(`field ${name} is not in message ${message} of target.proto`);
+            }
+            if (typeof value === 'string') {
+                const bytes = Buffer.from(value);
+                return [writeVarint((field.number << 3) | 2), writeVarint(bytes.length), bytes];
+            }
+            return [writeVarint(field.number << 3), writeVarint(value)];
+        })
+    );
+};
+
+const frame = (message: Buffer) => {
+    const header = Buffer.alloc(5);
+    header.writeUInt32BE(message.length, 1);
+    return Buffer.concat([header, message]);
+};
+
+// Takes the complete length-prefixed messages off the front of buffer
+const unframe = (buffer: Buffer): [Buffer[], Buffer] => {
+    const messages = [];
+    while (buffer.length >= 5 && buffer.length >= 5 + buffer.readUInt32BE(1)) {
+        const length = buffer.readUInt32BE(1);
+        messages.push(buffer.subarray(5, 5 + length));
+        buffer = buffer.subarray(5 + length);
+    }
+    return [messages, buffer];
+};
+
+// A dafka.consumer.v1.Target server running in the test process, to be exposed to the consumer container with
+// TestContainers.exposeHostPorts. status decides the grpc status every record is answered with
+export const startGrpcTarget = async (status: (record: Message) => number = () => 0) => {
+    const calls: GrpcCall[] = [];
+    const server = http2.createServer();
+    const sessions = new Set<http2.ServerHttp2Session>();
+    server.on('session', (session) => {
+        sessions.add(session);
+        session.on('close', () => sessions.delete(session));
+    });
+
+    server.on('stream', (stream, headers) => {
+        const method = (headers[':path'] ?? '').split('/').pop()!;
+        const call: GrpcCall = {method, records: []};
+        calls.push(call);
+
+        if (method === 'ConsumeStream') {
+            stream.respond({':status': 200, 'content-type': 'application/grpc'});
+            let pending = Buffer.alloc(0);
+            stream.on('data', (chunk: Buffer) => {
+                const [messages, rest] = unframe(Buffer.concat([pending, chunk]));
+                pending = rest;
+                for (const message of messages) {
+                    const record = decode('Record', message);
+                    call.records.push(record);
+                    const ack = encode('Ack', {
+                        topic: record.topic as string,
+                        partition: (record.partition as number) ?? 0,
+                        offset: (record.offset as number) ?? 0,
+                        code: status(record),
+                    });
+                    stream.write(frame(ack));
+                }
+            });
+            stream.on('end', () => stream.end());
+            return;
+        }
+
+        const chunks: Buffer[] = [];
+        stream.on('data', (chunk: Buffer) => chunks.push(chunk));
+        stream.on('end', () => {
+            call.records.push(...unframe(Buffer.concat(chunks))[0].map((message) => decode('Record', message)));
+            const code = call.records.map(status).find((code) => code !== 0) ?? 0;
+            stream.respond({':status': 200, 'content-type': 'application/grpc'}, {waitForTrailers: true});
+            stream.on('wantTrailers', () =>
+                stream.sendTrailers({'grpc-status': String(code), 'grpc-message': code === 0 ? '' : 'rejected'})
+            );
+            stream.end(code === 0 ? frame(encode('ConsumeResponse', {})) : undefined);
+        });
+    });
+
+    await new Promise<void>((resolve) => server.listen(0, resolve));
+
+    return {
+        port: (server.address() as AddressInfo).port,
+        calls,
+        stop: () =>
+            new Promise<void>((resolve) => {
+                sessions.forEach((session) => session.destroy());
+                server.close(() => resolve());
+            }),
+    };
+};
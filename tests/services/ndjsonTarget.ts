@@ -0,0 +1,64 @@
+import http2 from 'node:http2';
+import type {AddressInfo} from 'node:net';
+
+type Line = {topic: string; partition: number; offset: number; value: unknown; [field: string]: unknown};
+
+export interface NdjsonCall {
+    stream: boolean;
+    records: unknown[];
+}
+
+// An HTTP/2 target running in the test process, to be exposed to the consumer container with
+// TestContainers.exposeHostPorts. Streams of newline-delimited records are acked line by line, single record
+// requests are answered directly. status decides the status every record is answered with
+export const startNdjsonTarget = async (status: (value: unknown) => number = () => 200) => {
+    const calls: NdjsonCall[] = [];
+    const server = http2.createServer();
+    const sessions = new Set<http2.ServerHttp2Session>();
+    server.on('session', (session) => {
+        sessions.add(session);
+        session.on('close', () => sessions.delete(session));
+    });
+
+    server.on('stream', (stream, headers) => {
+        if (headers['content-type']?.startsWith('application/x-ndjson')) {
+            const call: NdjsonCall = {stream: true, records: []};
+            calls.push(call);
+            stream.respond({':status': 200, 'content-type': 'application/x-ndjson'});
+            let pending = '';
+            stream.on('data', (chunk: Buffer) => {
+                const lines = (pending + chunk.toString()).split('\n');
+                pending = lines.pop()!;
+                for (const line of lines.filter((line) => line.trim() !== '')) {
+                    const record = JSON.parse(line) as Line;
+                    call.records.push(record);
+                    const {topic, partition, offset} = record;
+                    stream.write(`${JSON.stringify({topic, partition, offset, status: status(record.value)})}\n`);
+                }
+            });
+            stream.on('end', () => stream.end());
+            return;
+        }
+
+        const chunks: Buffer[] = [];
+        stream.on('data', (chunk: Buffer) => chunks.push(chunk));
+        stream.on('end', () => {
+            const body = Buffer.concat(chunks).toString();
+            calls.push({stream: false, records: [body]});
+            stream.respond({':status': status(body)});
+            stream.end();
+        });
+    });
+
+    await new Promise<void>((resolve) => server.listen(0, resolve));
+
+    return {
+        port: (server.address() as AddressInfo).port,
+        calls,
+        stop: () =>
+            new Promise<void>((resolve) => {
+                sessions.forEach((session) => session.destroy());
+                server.close(() => resolve());
+            }),
+    };
+};
@@ -24,6 +24,35 @@ export const mockFaultyHttpTarget = (wiremock: WireMockClient, url: string) =>
         },
     });
 
+// Takes precedence over mockHttpTarget for the calls whose body contains bodyContains
+export const mockSlowHttpTarget = (wiremock: WireMockClient, url: string, bodyContains: string, delayMs: number) =>
+    wiremock.createMapping({
+        priority: 1,
+        request: {
+            url: url,
+            method: HttpMethod.Post,
+            bodyPatterns: [{contains: bodyContains}],
+        },
+        response: {
+            status: 200,
+            fixedDelayMilliseconds: delayMs,
+        },
+    });
+
+// Takes precedence over mockHttpTarget for the calls whose body contains bodyContains
+export const mockHttpTargetForBody = (wiremock: WireMockClient, url: string, bodyContains: string, status: number) =>
+    wiremock.createMapping({
+        priority: 1,
+        request: {
+            url: url,
+            method: HttpMethod.Post,
+            bodyPatterns: [{contains: bodyContains}],
+        },
+        response: {
+            status,
+        },
+    });
+
 export const getCalls = (wiremock: WireMockClient, target: RequestPattern, withHeaders = false) =>
     wiremock.waitForCalls(target).then((calls) =>
         calls.map(({url, body, headers}) => ({
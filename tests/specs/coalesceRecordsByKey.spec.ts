@@ -0,0 +1,58 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {getCalls, mockHttpTarget} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {map} from 'lodash-es';
+import delay from 'delay';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                COALESCE_BY_KEY: 'true',
+                WINDOW_DURATION: '5000',
+            },
+            ['foo']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should only send the latest record of every key and commit the records it supersedes', async () => {
+        const target = await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {key: 'a', value: JSON.stringify({data: 'a1'})},
+                {key: 'b', value: JSON.stringify({data: 'b1'})},
+                {value: JSON.stringify({data: 'none1'})},
+                {key: 'a', value: JSON.stringify({data: 'a2'})},
+                {key: 'a', value: JSON.stringify({data: 'a3'})},
+                {value: JSON.stringify({data: 'none2'})},
+                {key: 'b', value: JSON.stringify({data: 'b2'})},
+            ],
+        });
+        await delay(15000);
+
+        // Records without a key are all sent
+        await expect(
+            getCalls(orchestrator.wiremockClient, target).then((calls) => map(calls, 'body.data').sort())
+        ).resolves.toEqual(['a3', 'b2', 'none1', 'none2']);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(7);
+    });
+});
@@ -0,0 +1,68 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {mockHttpTarget, mockSlowHttpTarget} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {range} from 'lodash-es';
+import delay from 'delay';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                TARGET_TIMEOUT_MS: '60000',
+                STREAM_LANES: '4',
+                PIPELINE_MAX_IN_FLIGHT: '8',
+            },
+            ['foo']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should commit offsets in order while records complete out of order and across a rebalance', async () => {
+        await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockSlowHttpTarget(orchestrator.wiremockClient, '/consume', 'slow', 20000);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {key: 'slow', value: JSON.stringify({data: 'slow'})},
+                ...range(9).map((i) => ({key: `${i}`, value: JSON.stringify({data: `fast${i}`})})),
+            ],
+        });
+        await delay(5000);
+
+        // The records after the slow one are done, but nothing is committed past it
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(-1);
+
+        // Rebalances while the slow record is still in flight, the partition is consumed again from the start
+        const consumer = await orchestrator.startConsumer();
+        await delay(10000);
+        await consumer.stop();
+        await delay(30000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(10);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{key: 'after', value: JSON.stringify({data: 'after'})}],
+        });
+        await delay(5000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(11);
+    });
+});
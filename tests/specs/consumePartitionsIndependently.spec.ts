@@ -0,0 +1,64 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {mockHttpTarget, mockSlowHttpTarget} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {range} from 'lodash-es';
+import delay from 'delay';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                TARGET_TIMEOUT_MS: '60000',
+                PARTITION_MAX_IN_FLIGHT: '2',
+            },
+            [{topic: 'foo', numPartitions: 2}]
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should keep consuming a partition while another one is blocked', async () => {
+        await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockSlowHttpTarget(orchestrator.wiremockClient, '/consume', 'slow', 20000);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {partition: 0, value: JSON.stringify({data: 'slow'})},
+                ...range(5).map((i) => ({partition: 0, value: JSON.stringify({data: `blocked${i}`})})),
+                ...range(10).map((i) => ({partition: 1, value: JSON.stringify({data: `first${i}`})})),
+            ],
+        });
+        await delay(5000);
+
+        // Later polls of partition 1 don't wait for the slow record of partition 0
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: range(10).map((i) => ({partition: 1, value: JSON.stringify({data: `second${i}`})})),
+        });
+        await delay(5000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo', 0)).resolves.toBe(-1);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo', 1)).resolves.toBe(20);
+
+        await delay(20000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo', 0)).resolves.toBe(6);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo', 1)).resolves.toBe(20);
+    });
+});
@@ -0,0 +1,80 @@
+import {TestContainers} from 'testcontainers';
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {produce} from '../services/produce.js';
+import delay from 'delay';
+import {startGrpcTarget} from '../services/grpcTarget.js';
+import {getOffset} from '../services/getOffset.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {consume} from '../services/consume.js';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+    let target: Awaited<ReturnType<typeof startGrpcTarget>>;
+
+    beforeEach(async () => {
+        // grpc status 3 is INVALID_ARGUMENT, which the consumer dead letters like a 400
+        target = await startGrpcTarget((record) => (String(record.value).includes('bad') ? 3 : 0));
+        await TestContainers.exposeHostPorts(target.port);
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_TYPE: 'grpc',
+                TARGET_BASE_URL: `http://host.testcontainers.internal:${target.port}`,
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                DEAD_LETTER_TOPIC: 'dead',
+            },
+            ['foo', 'dead']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        await target?.stop();
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should send records to the grpc target with the fields of target.proto', async () => {
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{key: 'a', value: JSON.stringify({data: 'foo'}), headers: {'x-request-id': '111'}}],
+        });
+        await delay(5000);
+
+        expect(target.calls).toMatchObject([
+            {
+                method: 'Consume',
+                records: [
+                    {
+                        topic: 'foo',
+                        partition: 0,
+                        offset: 0,
+                        original_topic: 'foo',
+                        key: 'a',
+                        value: JSON.stringify({data: 'foo'}),
+                        headers: [{key: 'x-request-id', value: '111'}],
+                    },
+                ],
+            },
+        ]);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+    });
+
+    it('should produce to dead letter topic when the grpc target rejects a record', async () => {
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{value: JSON.stringify({data: 'bad'})}],
+        });
+        await delay(5000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+        await expect(consume(orchestrator.kafkaClient, 'dead')).resolves.toMatchObject({
+            value: {data: 'bad'},
+            headers: {'x-response-status-code': '400', 'x-response-body': 'rejected'},
+        });
+    });
+});
@@ -0,0 +1,96 @@
+import {TestContainers} from 'testcontainers';
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {produce} from '../services/produce.js';
+import delay from 'delay';
+import {startNdjsonTarget} from '../services/ndjsonTarget.js';
+import {getOffset} from '../services/getOffset.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {consume} from '../services/consume.js';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+    let target: Awaited<ReturnType<typeof startNdjsonTarget>>;
+
+    beforeEach(async () => {
+        target = await startNdjsonTarget((value) => (JSON.stringify(value).includes('bad') ? 400 : 200));
+        await TestContainers.exposeHostPorts(target.port);
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: `http://host.testcontainers.internal:${target.port}`,
+                TARGET_HTTP_PROTOCOL: 'h2c',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                DEAD_LETTER_TOPIC: 'dead',
+                TARGET_STREAMS: '2',
+            },
+            ['foo', 'dead']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        await target?.stop();
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should stream records to the http target as ndjson lines and commit them by its acks', async () => {
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {key: 'a', value: JSON.stringify({data: 'foo'}), headers: {'x-request-id': '111'}},
+                {key: 'a', value: JSON.stringify({data: 'bar'})},
+            ],
+        });
+        await delay(5000);
+
+        expect(target.calls).toMatchObject([
+            {
+                stream: true,
+                records: [
+                    {
+                        topic: 'foo',
+                        partition: 0,
+                        offset: 0,
+                        originalTopic: 'foo',
+                        key: 'a',
+                        headers: {'x-request-id': '111'},
+                        value: {data: 'foo'},
+                    },
+                    {topic: 'foo', partition: 0, offset: 1, key: 'a', value: {data: 'bar'}},
+                ],
+            },
+        ]);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(2);
+    });
+
+    it('should produce to dead letter topic when the http target acks a record with 400', async () => {
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{key: 'a', value: JSON.stringify({data: 'bad'})}],
+        });
+        await delay(5000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+        await expect(consume(orchestrator.kafkaClient, 'dead')).resolves.toMatchObject({
+            value: {data: 'bad'},
+            headers: {'x-response-status-code': '400'},
+        });
+    });
+
+    it('should send values that are not json on their own request', async () => {
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{key: 'a', value: 'not json'}],
+        });
+        await delay(5000);
+
+        expect(target.calls).toContainEqual({stream: false, records: ['not json']});
+        expect(target.calls.flatMap(({stream, records}) => (stream ? records : []))).toEqual([]);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+    });
+});
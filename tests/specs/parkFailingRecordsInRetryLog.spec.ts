@@ -0,0 +1,92 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {getCalls, mockHttpTarget, mockHttpTargetForBody} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {consume} from '../services/consume.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {range} from 'lodash-es';
+import delay from 'delay';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                DEAD_LETTER_TOPIC: 'dead',
+                RETRY_LOG_PATH: '/tmp/retry.log',
+                RETRY_LOG_MAX_DURATION_MS: '20000',
+                RETRY_POLICY_EXPONENTIAL_BACKOFF: '100,1000,2',
+            },
+            ['foo', 'dead']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    const produceRecords = () =>
+        produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {key: 'first', value: JSON.stringify({data: 'first'})},
+                {key: 'failing', value: JSON.stringify({data: 'failing'})},
+                ...range(5).map((i) => ({key: `other${i}`, value: JSON.stringify({data: `other${i}`})})),
+                {key: 'failing', value: JSON.stringify({data: 'behind'})},
+            ],
+        });
+
+    it('should park a failing record without blocking other keys and deliver it once the target recovers', async () => {
+        const target = await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockHttpTargetForBody(orchestrator.wiremockClient, '/consume', 'failing', 503);
+
+        await produceRecords();
+        await delay(5000);
+
+        // Other keys go on, the record behind the parked one waits for it and the offset doesn't pass it
+        const calls = await getCalls(orchestrator.wiremockClient, target);
+        expect(calls.map(({body}) => body)).toEqual(
+            expect.arrayContaining([{data: 'first'}, ...range(5).map((i) => ({data: `other${i}`}))])
+        );
+        expect(calls).toHaveLength(6);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+
+        await orchestrator.wiremockClient.reset();
+        const recovered = await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await delay(5000);
+
+        await expect(getCalls(orchestrator.wiremockClient, recovered)).resolves.toEqual([
+            {url: '/consume', body: {data: 'failing'}},
+            {url: '/consume', body: {data: 'behind'}},
+        ]);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(8);
+    });
+
+    it('should dead letter a parked record the target keeps failing', async () => {
+        await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockHttpTargetForBody(orchestrator.wiremockClient, '/consume', 'failing', 503);
+
+        await produceRecords();
+        await delay(5000);
+
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(1);
+
+        await delay(25000);
+
+        await expect(consume(orchestrator.kafkaClient, 'dead')).resolves.toMatchObject({
+            headers: {'x-response-status-code': '503'},
+            value: {data: 'failing'},
+        });
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(8);
+    });
+});
@@ -0,0 +1,89 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {getCalls, mockHttpTarget, mockSlowHttpTarget} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {map, range} from 'lodash-es';
+import delay from 'delay';
+
+// The lane the consumer hashes a key into, Arrays.hashCode of the key's bytes
+const lane = (key: string) => {
+    const hash = [...Buffer.from(key)].reduce((hash, byte) => (Math.imul(hash, 31) + ((byte << 24) >> 24)) | 0, 1);
+    return ((hash % 2) + 2) % 2;
+};
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                TARGET_TIMEOUT_MS: '60000',
+                STREAM_LANES: '2',
+                PIPELINE_MAX_IN_FLIGHT: '4',
+            },
+            ['foo']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should process later polls while a record is in flight, up to the in flight bound', async () => {
+        const target = await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockSlowHttpTarget(orchestrator.wiremockClient, '/consume', 'slow', 20000);
+        const otherLaneKeys = range(100)
+            .map((i) => `key${i}`)
+            .filter((key) => lane(key) !== lane('slow'))
+            .slice(0, 6);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [{key: 'slow', value: JSON.stringify({data: 'slow'})}],
+        });
+        await delay(2000);
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: range(3).map((i) => ({key: otherLaneKeys[i], value: JSON.stringify({data: `next${i}`})})),
+        });
+        await delay(2000);
+        // Two of the records queued behind the slow one fill the bound (4, less a record being called per lane),
+        // so nothing after them is taken until it's done
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                ...range(10).map((i) => ({key: 'slow', value: JSON.stringify({data: `queued${i}`})})),
+                ...range(3).map((i) => ({key: otherLaneKeys[3 + i], value: JSON.stringify({data: `held${i}`})})),
+            ],
+        });
+        await delay(5000);
+
+        const called = () =>
+            getCalls(orchestrator.wiremockClient, target).then((calls) =>
+                map(calls, 'body.data').filter((data) => data !== 'slow').sort()
+            );
+        await expect(called()).resolves.toEqual(['next0', 'next1', 'next2']);
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(-1);
+
+        await delay(25000);
+
+        await expect(called()).resolves.toEqual(
+            [
+                ...range(3).map((i) => `held${i}`),
+                ...range(3).map((i) => `next${i}`),
+                ...range(10).map((i) => `queued${i}`),
+            ].sort()
+        );
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(17);
+    });
+});
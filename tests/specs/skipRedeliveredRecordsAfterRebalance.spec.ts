@@ -0,0 +1,64 @@
+import type {Orchestrator} from '../testcontainers/orchestrator.js';
+import {start} from '../testcontainers/orchestrator.js';
+import {getCalls, mockHttpTarget, mockSlowHttpTarget} from '../services/target.js';
+import {getOffset} from '../services/getOffset.js';
+import {produce} from '../services/produce.js';
+import {topicRoutes} from '../services/topicRoutes.js';
+import {countBy, map, range} from 'lodash-es';
+import delay from 'delay';
+
+describe('tests', () => {
+    let orchestrator: Orchestrator;
+
+    beforeEach(async () => {
+        orchestrator = await start(
+            {
+                KAFKA_BROKER: 'kafka:9092',
+                MONITORING_SERVER_PORT: '3000',
+                GROUP_ID: 'test',
+                TARGET_BASE_URL: 'http://mocks:8080',
+                TOPICS_ROUTES: topicRoutes([{topic: 'foo', targetPath: '/consume'}]),
+                TARGET_TIMEOUT_MS: '120000',
+                // Eager rebalances revoke every partition, so foo is redelivered from its committed offset
+                ASSIGNMENT_STRATEGY: 'Range',
+                DEDUP_CACHE_SIZE: '1000',
+            },
+            ['foo', 'bar']
+        );
+    }, 5 * 60 * 1000);
+
+    afterEach(async () => {
+        if (!orchestrator) {
+            return;
+        }
+        await orchestrator.stop();
+    });
+
+    it('should not call the target again for records redelivered after a rebalance', async () => {
+        const target = await mockHttpTarget(orchestrator.wiremockClient, '/consume', 200);
+        await mockSlowHttpTarget(orchestrator.wiremockClient, '/consume', 'slow', 40000);
+
+        await produce(orchestrator, {
+            topic: 'foo',
+            messages: [
+                {value: JSON.stringify({data: 'slow'})},
+                ...range(9).map((i) => ({value: JSON.stringify({data: `fast${i}`})})),
+            ],
+        });
+        await delay(5000);
+
+        // Nothing is committed past the slow record, so a rebalance redelivers the records already done. The other
+        // consumer of the group only consumes bar and leaves foo to the first one
+        const consumer = await orchestrator.startConsumer({
+            TOPICS_ROUTES: topicRoutes([{topic: 'bar', targetPath: '/consume'}]),
+        });
+        await delay(90000);
+
+        const calls = countBy(map(await getCalls(orchestrator.wiremockClient, target), 'body.data'));
+        expect(calls['slow']).toBeGreaterThan(1);
+        expect(calls).toMatchObject(Object.fromEntries(range(9).map((i) => [`fast${i}`, 1])));
+        await expect(getOffset(orchestrator.kafkaClient, 'foo')).resolves.toBe(10);
+
+        await consumer.stop();
+    });
+});
@@ -1,10 +1,10 @@
 import {StartedNetwork, Wait} from 'testcontainers';
 import {KafkaContainer} from '@testcontainers/kafka';
-import {Kafka, logLevel} from 'kafkajs';
+import {ITopicConfig, Kafka, logLevel} from 'kafkajs';
 import delay from 'delay';
 import fs from 'node:fs';
 
-export const kafka = async (network: StartedNetwork, topics: string[]) => {
+export const kafka = async (network: StartedNetwork, topics: (string | ITopicConfig)[]) => {
     const container = await new KafkaContainer('confluentinc/cp-kafka:7.2.2')
         .withNetwork(network)
         .withNetworkAliases('kafka')
@@ -27,7 +27,7 @@ export const kafka = async (network: StartedNetwork, topics: string[]) => {
         brokers: [`${container.getHost()}:${container.getMappedPort(9093)}`],
     });
 
-    await client.admin().createTopics({topics: topics.map((topic) => ({topic}))});
+    await client.admin().createTopics({topics: topics.map((topic) => (typeof topic === 'string' ? {topic} : topic))});
 
     return {
         stop: () => container.stop(),
@@ -1,21 +1,23 @@
 import {Network} from 'testcontainers';
-import {dafkaConsumer} from './dafkaConsumer.js';
+import {dafkaConsumer, ServiceContainer} from './dafkaConsumer.js';
 import {kafka} from './kafka.js';
 import {wiremock} from './wiremock.js';
 import {WireMockClient} from '@osskit/wiremock-client';
-import {Kafka} from 'kafkajs';
+import {ITopicConfig, Kafka} from 'kafkajs';
 import Dockerode from 'dockerode';
 
 export interface Orchestrator {
     kafkaClient: Kafka;
     wiremockClient: WireMockClient;
     dafkaConsumerInspect: () => Promise<Dockerode.ContainerInspectInfo>;
+    // Another consumer of the same group, to trigger rebalances, with env overriding the consumer's
+    startConsumer: (env?: Record<string, string>) => Promise<ServiceContainer>;
     stop: () => Promise<void>;
 }
 
 export const start = async (
     env: Record<string, string>,
-    topics: string[],
+    topics: (string | ITopicConfig)[],
     waitForAssignedPartitions: boolean = true
 ) => {
     const network = await new Network().start();
@@ -32,6 +34,8 @@ export const start = async (
         kafkaClient,
         wiremockClient,
         dafkaConsumerInspect,
+        startConsumer: (overrides: Record<string, string> = {}) =>
+            dafkaConsumer(network, {...env, ...overrides}, false),
         stop: async () => {
             await stopConsumer();
             await stopWiremock();